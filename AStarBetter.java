@@ -1,63 +1,78 @@
 package com.company;
 
 import javax.swing.*;
+import java.io.IOException;
 import java.util.*;
 
 import static javax.swing.JOptionPane.showInputDialog;
 
 class SortBySum implements java.util.Comparator<State> {
 
+    /*
+     * Lowest g + h first, on a tie the deeper state, see BucketQueue
+     */
     @Override
     public int compare(State o1, State o2) {
-        return (o1.getLevel() + o1.getSum()) - (o2.getLevel() + o2.getSum());
+        int byF = (o1.getLevel() + o1.getSum()) - (o2.getLevel() + o2.getSum());
+
+        return byF != 0 ? byF : o2.getLevel() - o1.getLevel();
     }
 }
 
 interface Heuristic {
     int calculateSum(State currentState, State goalState);
+
+    /*
+     * Same as above for boards packed by PackedBoard. The default unpacks
+     * both boards, heuristics used in the search loop should override it
+     */
+    default int calculateSum(long currentState, long goalState, int cells) {
+        return calculateSum(new State(PackedBoard.unpack(currentState, cells), 0),
+                new State(PackedBoard.unpack(goalState, cells), 0));
+    }
 }
 
-class ManhattanDistance implements Heuristic {
+class ManhattanDistance implements IncrementalHeuristic {
+    private volatile ManhattanTable table; //for the last goal used
 
     /*
-     * This search works by first finding an un-matching position from
-     * current state to goal state, we then count from that position
-     * to where it should be in the goal state. We apply this formula
-     * to every un-matching value in the array
+     * For every tile (the blank is not counted) we look up where it sits
+     * in the goal state and add the number of rows plus the number of
+     * columns it still has to travel.
      *
      *  Formula to find moves:
-     * ((linear distance from index / sqrt(len) ) +
-     * ((linear distance from index % sqrt(len) )
+     * |row(i) - row(goal)| + |col(i) - col(goal)|
+     * where row = index / sqrt(len) and col = index % sqrt(len)
+     *
+     * Every move shifts one tile by one square so this never over estimates,
+     * which is what A* needs to return the shortest path
      *
-     * Above formula works out shortest path to its goal position
+     * Both overloads go through table(), it precomputes the distance of every
+     * tile from every square for the goal so a board costs one lookup per
+     * square, whatever its size, and a move only two
      */
     public int calculateSum(State currentState, State goalState) {
-        return calculateSum1(currentState, goalState) + calculateSum1(goalState, currentState);
+        return table(goalState.getState()).calculateSum(currentState.getState());
     }
 
-    private int calculateSum1(State currentState, State goalState) {
-        int hSum = 0;
-        int[] eState = goalState.getState();
-        int[] cState = currentState.getState();
+    public int calculateSum(long currentState, long goalState, int cells) {
+        ManhattanTable t = table;
+        if (t == null || !t.isFor(goalState, cells)) table = t = new ManhattanTable(PackedBoard.unpack(goalState, cells));
+
+        return t.calculateSum(currentState);
+    }
 
-        int sqrt = (int) Math.sqrt(eState.length);
-        int arrLen = cState.length;
+    public HeuristicTable table(State goalState) {
+        return table(goalState.getState());
+    }
 
-        for (int i = 0; i < arrLen; i++) {
+    private ManhattanTable table(int[] goal) {
+        ManhattanTable t = table;
 
-            if (cState[i] != 0 && cState[i] != eState[i]) {
-                int distance = 0;
-                for (int j = i + 1; j < arrLen; j++) {
-                    distance++;
-                    if (cState[i] == eState[j]) {
-                        hSum += ((distance / sqrt) + (distance % sqrt));
-                        break;
-                    }
-                }
-            }
-        }
+        //tables never change, every search against the same goal shares one
+        if (t == null || !t.isFor(goal)) table = t = new ManhattanTable(goal);
 
-        return hSum;
+        return t;
     }
 
     public String toString() {
@@ -68,7 +83,7 @@ class ManhattanDistance implements Heuristic {
 class TilePlacement implements Heuristic {
 
     /* Very basic Heuristic to count how many tiles
-     * are out of place
+     * are out of place, the blank is not a tile so it is skipped
      */
     public int calculateSum(State currentState, State goalState) {
         int hSum = 0;
@@ -76,7 +91,18 @@ class TilePlacement implements Heuristic {
         int[] gState = goalState.getState();
 
         for (int i = 0; i < eState.length; i++) {
-            if (eState[i] != gState[i]) hSum++;
+            if (eState[i] != 0 && eState[i] != gState[i]) hSum++;
+        }
+
+        return hSum;
+    }
+
+    public int calculateSum(long currentState, long goalState, int cells) {
+        int hSum = 0;
+
+        for (int i = 0; i < cells; i++) {
+            int tile = PackedBoard.get(currentState, i);
+            if (tile != 0 && tile != PackedBoard.get(goalState, i)) hSum++;
         }
 
         return hSum;
@@ -91,10 +117,17 @@ class State implements Comparable<State> {
     private int level;
     private int sum;
     private int[] state;
+    private int blank; //index of the 0 tile
+    private State parent; //state we moved from, used to rebuild the path
 
     public State(int[] state, int level) {
+        this(state, level, -1);
+    }
+
+    public State(int[] state, int level, int blank) {
         this.state = state;
         this.level = level;
+        this.blank = blank;
         sum = -1;
     }
 
@@ -106,6 +139,15 @@ class State implements Comparable<State> {
         return level;
     }
 
+    public int getBlank() {
+        if (blank < 0) { //only scanned once, children get it from their parent's move
+            blank = 0;
+            while (state[blank] != 0) blank++;
+        }
+
+        return blank;
+    }
+
     public int getSum() {
         return sum;
     }
@@ -114,6 +156,14 @@ class State implements Comparable<State> {
         this.sum = sum;
     }
 
+    public State getParent() {
+        return parent;
+    }
+
+    public void setParent(State parent) {
+        this.parent = parent;
+    }
+
     private String stateToString() {
         int sqrt = (int) Math.sqrt(state.length);
         StringBuilder sb = new StringBuilder("| ");
@@ -146,7 +196,7 @@ class State implements Comparable<State> {
 
     @Override
     public int hashCode() {
-        return Arrays.toString(state).hashCode();
+        return Arrays.hashCode(state);
     }
 
     /*
@@ -154,45 +204,33 @@ class State implements Comparable<State> {
      */
     @Override
     public int compareTo(State o) {
-        return Arrays.toString(state).compareTo(Arrays.toString(o.state));
+        int len = Math.min(state.length, o.state.length);
+
+        for (int i = 0; i < len; i++) {
+            if (state[i] != o.state[i]) return state[i] - o.state[i];
+        }
+
+        return state.length - o.state.length;
     }
 }
 
 class Utils {
 
-    public static Set<State> getNextStates(State state, int level) {
-        int position = 0;
+    /*
+     * Children of a state for showing to a human, every child needs its own
+     * array here. The searches use MoveTable.expand on packed boards instead
+     */
+    public static List<State> getNextStates(State state, int level) {
         int[] matrix = state.getState();
-        int sqrt = (int) Math.sqrt(matrix.length);
+        int position = state.getBlank(); //current position of Zero
+        MoveTable moves = MoveTable.forCells(matrix.length);
 
-        Set<State> newStates = new TreeSet<>();
-        for (int i = 0; i < matrix.length; i++) {
-            if (matrix[i] == 0) {
-                position = i; //current position of Zero
-                break;
-            }
-        }
-
-        int north = position - sqrt;//move up
-        int south = position + sqrt;//move down
-        int east = (position % sqrt) + 1; //move right
-        int west = (position % sqrt) - 1; //move left
-
-
-        if (north >= 0) { //can move north
-            newStates.add(new State(swap(matrix.clone(), position, north), level));
-        }
+        int count = moves.count(position);
+        List<State> newStates = new ArrayList<>(count);
 
-        if (east < sqrt) { //can move east
-            newStates.add(new State(swap(matrix.clone(), position, position + 1), level));
-        }
-
-        if (west >= 0) { //can move west
-            newStates.add(new State(swap(matrix.clone(), position, position - 1), level));
-        }
-
-        if (south < matrix.length) { //can move south
-            newStates.add(new State(swap(matrix.clone(), position, south), level));
+        for (int k = 0; k < count; k++) { //north, east, west, south
+            int target = moves.target(position, k);
+            newStates.add(new State(swap(matrix.clone(), position, target), level, target));
         }
 
         return newStates;
@@ -217,6 +255,20 @@ class Utils {
         return best;
     }
 
+    /*
+     * Same as above on boards packed by PackedBoard
+     */
+    public static int calculateBestMove(List<Heuristic> heuristics, long currentState, long goalState, int cells) {
+        int best = -1;
+
+        for (Heuristic h : heuristics) {
+            int sum = h.calculateSum(currentState, goalState, cells);
+            if (sum > best) best = sum;
+        }
+
+        return best;
+    }
+
     public static int[] swap(int[] arr, int i, int j) {
         int tmp = arr[i];
         arr[i] = arr[j];
@@ -282,6 +334,9 @@ public class AStarBetter {
             } else if (sLen != eLen) {
                 JOptionPane.showMessageDialog(null,
                         "Matrix sizes don't match A=" + sLen + " B=" + eLen);
+            } else if (Math.sqrt(sLen) > MoveTable.MAX_WIDTH) {
+                JOptionPane.showMessageDialog(null,
+                        "Boards can be at most " + MoveTable.MAX_WIDTH + " x " + MoveTable.MAX_WIDTH);
             } else {
 
                 int[] sortTest = new int[sLen];
@@ -290,21 +345,56 @@ public class AStarBetter {
                 }
 
                 if (Arrays.equals(sortedStart, sortTest) && Arrays.equals(sortedEnd, sortTest)) {
-                    int choice = JOptionPane.showConfirmDialog(
+                    //half of all boards can never reach the goal, don't start a search for those
+                    if (!Solvability.isSolvable(firstState, goalState)) {
+                        JOptionPane.showMessageDialog(null,
+                                "This puzzle can't be solved, no moves lead from\n"
+                                        + new State(firstState, 0) + "\n\nto\n" + new State(goalState, 0));
+                        return;
+                    }
+
+                    String[] modes = {"AI A*", "AI IDA*", "AI Bidirectional A*", "AI Anytime A* (1s)", "AI External A* (disk)",
+                            "AI Memory-bounded A*", "Human"};
+                    int choice = JOptionPane.showOptionDialog(
                             null,
-                            "Yes for AI mode, No for human Mode",
-                            "AI MODE", JOptionPane.YES_NO_OPTION);
+                            "A* is fastest, IDA* uses almost no memory on hard puzzles,\n"
+                                    + "Bidirectional A* searches from both ends on deep puzzles,\n"
+                                    + "Anytime A* answers within a second, maybe not with the fewest moves,\n"
+                                    + "External A* keeps its search on disk when it won't fit in memory,\n"
+                                    + "Memory-bounded A* forgets its worst nodes instead of running out of memory",
+                            "AI MODE", JOptionPane.DEFAULT_OPTION,
+                            JOptionPane.QUESTION_MESSAGE, null, modes, modes[0]);
 
                     List<Heuristic> heuristics = new ArrayList<>();
                     heuristics.add(new ManhattanDistance());
                     heuristics.add(new TilePlacement());
+                    heuristics.add(new LinearConflict());
+                    if (PackedBoard.fits(sLen)) heuristics.add(new PatternDatabase()); //built on first use
+                    if (sLen == EightPuzzleTable.CELLS) heuristics.add(new EightPuzzleTable()); //exact, built on first use
+
+                    List<Heuristic> strongest = new ArrayList<>();
+                    strongest.add(new LinearConflict());
+                    if (sLen <= WalkingDistance.MAX_WIDTH * WalkingDistance.MAX_WIDTH) {
+                        heuristics.add(new WalkingDistance());
+                        strongest.add(new WalkingDistance());
+                    }
+                    heuristics.add(new MaxHeuristic(strongest));
 
                     Object[] oHeuristics = heuristics.toArray();
                     Heuristic heuristic = (Heuristic) JOptionPane.showInputDialog(null,
                             "Choose Heuristic",
                             "Select", 0, null, oHeuristics, oHeuristics[0]);
 
-                    findEndState(firstState, goalState, choice == 0, heuristic);
+                    Solver solver = null; //human mode
+                    if (choice == 0) solver = heuristic instanceof EightPuzzleTable //exact distances, nothing to search
+                            ? new TableWalk((EightPuzzleTable) heuristic, heuristic) : new AStarSearch(heuristic);
+                    if (choice == 1) solver = new IDAStarSearch(heuristic);
+                    if (choice == 2) solver = new BidirectionalSearch(heuristic);
+                    if (choice == 3) solver = new AnytimeSearch(heuristic, 3, 1000);
+                    if (choice == 4) solver = new ExternalSearch(heuristic);
+                    if (choice == 5) solver = new SMAStarSearch(heuristic);
+
+                    findEndState(firstState, goalState, solver, heuristic);
                 } else {
                     JOptionPane.showMessageDialog(null,
                             "Matrix is not valid must be like:\n" +
@@ -319,10 +409,38 @@ public class AStarBetter {
     }
 
 
-    public static void findEndState(int[] startState, int[] endState, boolean aiMode, Heuristic heuristic) {
+    public static void findEndState(int[] startState, int[] endState, Solver solver, Heuristic heuristic) {
         State startNode = new State(startState, 0);
         State endNode = new State(endState, 0);
 
+        if (solver != null) { //AI mode
+            SolutionCache cache = SolutionCache.shared();
+            solver = new CachedSolver(new NormalizedSolver(solver), cache);
+            Solution solution;
+            try {
+                solution = solver.solution(startNode, endNode);
+            } catch (RuntimeException e) { //e.g. a memory bounded search that ran out of nodes
+                JOptionPane.showMessageDialog(null, "No path found:\n" + e.getMessage());
+                return;
+            }
+
+            if (solution == null) {
+                System.out.println("No path found");
+            } else {
+                System.out.println("Your win in " + solution.length() + " moves: " + solution);
+                if (solution.getBound() > 1) System.out.printf("At most %.2f times the fewest moves\n", solution.getBound());
+                solution.print(System.out);
+            }
+            System.out.println(solver.getStats());
+
+            try {
+                cache.save();
+            } catch (IOException e) {
+                System.err.println("Could not save solutions: " + e.getMessage());
+            }
+            return;
+        }
+
         List<State> open = new ArrayList<>();
         Stack<State> closed = new Stack<>();
         Set<State> visted = new LinkedHashSet<>();
@@ -332,6 +450,7 @@ public class AStarBetter {
         open.addAll(Utils.getNextStates(startNode, level));
         State selectedNode = startNode;
         closed.add(selectedNode);// we selected this
+        visted.add(selectedNode);
         SortBySum sortBySum = new SortBySum();
 
         while (noGoal) {
@@ -345,64 +464,45 @@ public class AStarBetter {
              * the sum, sort then print
              */
             open.sort(sortBySum);
-            //usually best move but if both have same score index 1 might be the winning choice
-            if (aiMode) selectedNode = open.get(0);
 
-            if (!aiMode) { //if no AI mode human chooses
-                printStates(open, level);
-                Object[] oStates = open.toArray();
+            //human chooses, AI mode never gets here it uses the solver
+            printStates(open, level);
+            Object[] oStates = open.toArray();
 
-                selectedNode = (State) JOptionPane.showInputDialog(null,
-                        "Choose next state",
-                        "Title", 0, null, oStates, oStates[0]);
-            }
-            if (!aiMode) {
-                JOptionPane.showMessageDialog(null,
-                        "Your Selected\n" + selectedNode
-                                + "\nEnd State\n" + endNode);
-            }
+            selectedNode = (State) JOptionPane.showInputDialog(null,
+                    "Choose next state",
+                    "Title", 0, null, oStates, oStates[0]);
+
+            JOptionPane.showMessageDialog(null,
+                    "Your Selected\n" + selectedNode
+                            + "\nEnd State\n" + endNode);
 
             closed.push(selectedNode); // we selected this - contains best path if found
             visted.add(selectedNode); // all states we checked - keep track of bad states
 
             if (selectedNode.equals(endNode)) {
                 noGoal = false;
-                System.out.println("Your win");
-
-                for (State cl : closed) {
-                    System.out.printf("******* Level(%d) ********\n%s\n", cl.getLevel(), cl);
-                }
+                Solution solution = Solution.of(new ArrayList<>(closed)); //only the picked states, in order
+                System.out.println("Your win in " + solution.length() + " moves: " + solution);
+                if (solution.getBound() > 1) System.out.printf("At most %.2f times the fewest moves\n", solution.getBound());
+                solution.print(System.out);
             } else {
                 level++;
                 List<State> nextStates = new ArrayList<>(Utils.getNextStates(selectedNode, level));
 
                 open.clear();
                 for (State op : nextStates) {
-                    if(!closed.contains(op) && !visted.contains(op)) open.add(op); //only add states not used
+                    if (!visted.contains(op)) open.add(op); //only add states not used, visted holds everything in closed
                 }
 
                 if (open.size() == 0) { //dead end
-                    //we need to back track at this point
-                    /* for project 8 Puzzle the tile placement heuristic reaches this dead state
-                     * but ManhattanDistance solves it in 6 goes.
-                     *
-                     * for the 15 puzzle 4 8 12 15 3 6 7 14 2 10 11 13 1 5 9 0   36 moves
-                     * ManhattanDistance reaches this dead state
-                     * but TilePlacement solves it in 36 moves
-                     *
-                     * TilePlacement solves it because the 2 choice had the same
-                     * score but the good path was the first choice
-                     * ManhattanDistance had the same situation but the best
-                     * choice was number 2 in the list
-                     *
-                     * So when we get here we need to back track to a certain point
-                     * where the state was good
-					 * 
-					 * we need to pop off the last added state then start from the state
-					 * just before it and keep working back this way
+                    /* Every move from here goes back to a state we already picked.
+                     * This used to be where the greedy AI got stuck when two
+                     * children had the same score (4 8 12 15 3 6 7 14 2 10 11 13 1 5 9 0
+                     * with ManhattanDistance), AI mode now runs a full A* so only
+                     * a human can walk into this
                      */
-                    //TODO: fix this we landed here because we hit a dead trail
-                    System.out.println("Fix this - AI picked wrong option for similar scores");
+                    System.out.println("Dead end - no unused moves left from this state");
                     noGoal = false;
                 }
             }
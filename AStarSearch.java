@@ -0,0 +1,381 @@
+package com.company;
+
+import java.util.*;
+
+/*
+ * A* search over the puzzle graph.
+ *
+ * Unlike the old greedy loop the open list is global: every generated state
+ * goes into one BucketQueue ordered by g + h and the cheapest one is expanded
+ * next, no matter which branch it came from. Of equally cheap states the
+ * deepest is taken first. Each node keeps a pointer to the
+ * node it was reached from so the path is rebuilt by walking back from the goal.
+ *
+ * The closed list remembers the cheapest g seen for every board. When a board
+ * turns up again with a lower g it is pushed again (re-opened, even if it was
+ * already expanded); the older, more expensive open entry is skipped when it
+ * is popped. With an admissible heuristic the first time the goal is popped
+ * its path is the shortest one.
+ *
+ * Boards of up to 16 cells are searched as PackedBoard longs held in a
+ * NodeTable with a BucketQueue open list, no objects per node. Bigger boards,
+ * up to 7 x 7, keep one byte per square in a ByteNodeTable instead. The
+ * tables are reused by the next solve, so a solver must only be used by one
+ * thread at a time.
+ *
+ * A* keeps every node it reaches, which a hard 5 x 5 board can't afford.
+ * Once the closed list holds maxNodes nodes (a quarter of the heap by
+ * default, growing a table briefly needs both copies, split between the
+ * solvers running at the same time, or -Dastar.maxNodes) the search is
+ * dropped and the board is handed to IDAStarSearch, which only needs
+ * memory for the current path.
+ *
+ * With a Checkpoint the node table and open list of a packed search are
+ * saved every so often and a later solve of the same board starts from
+ * them. A checkpoint only copies the nodes added since the last one and a
+ * list of the nodes expanded or re-opened since, so the pause doesn't grow
+ * with the table. It is saved early once those reach a quarter of the
+ * budget, which keeps what they cost small. A resumed search takes equally
+ * good nodes in the order they were added, not always the order the first
+ * one would have. A checkpoint left by the IDA* fallback goes straight to IDA*.
+ */
+class AStarSearch implements Solver {
+    private static final int NODE_BYTES = 36; //g, h, parent, index and open list share of every node
+    private static final int SNAPSHOT_BYTES = 9; //changes for a checkpoint, at most a quarter of the budget at 32 bytes, and an open bit
+
+    private final Heuristic heuristic;
+    private final long maxNodes; //0 works out a budget from the heap
+    private final int share; //solvers sharing the heap
+    private final SearchStats own = new SearchStats();
+    private SearchStats stats = own;
+    private boolean full; //set when the last search ran into maxNodes
+    private Checkpoint checkpoint = Checkpoint.configured();
+
+    //kept between solves so a solver reused on one thread doesn't reallocate them
+    private BucketQueue open;
+    private NodeTable closed;
+    private ByteNodeTable byteClosed;
+    private final long[] children = new long[4];
+    private final int[] childBlanks = new int[4];
+
+    //what changed since the last checkpoint
+    private boolean saving;
+    private int inFile; //nodes the checkpoint has, the next one copies the ones after
+    private int[] changes = new int[1 << 10]; //ids expanded in order, ~id for ids re-opened
+    private int changeCount;
+
+    AStarSearch(Heuristic heuristic) {
+        this(heuristic, Long.getLong("astar.maxNodes", 0));
+    }
+
+    AStarSearch(Heuristic heuristic, long maxNodes) {
+        this(heuristic, maxNodes, 1);
+    }
+
+    /**
+     * @param maxNodes most nodes kept before handing over to IDA*, 0 works it out from the heap
+     * @param share    solvers running at the same time, each gets that part of the heap
+     */
+    AStarSearch(Heuristic heuristic, long maxNodes, int share) {
+        this.heuristic = heuristic;
+        this.maxNodes = maxNodes;
+        this.share = Math.max(1, share);
+    }
+
+    /*
+     * Saves the search to checkpoint every so often and resumes from it, null turns that off
+     */
+    void setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Runs A* from start to goal
+     *
+     * @param startNode state to start from
+     * @param endNode   goal state
+     * @return path from start to goal (both included) or null when the goal can't be reached
+     */
+    public List<State> solve(State startNode, State endNode) {
+        int cells = startNode.getState().length;
+        stats = own;
+        full = false;
+
+        Checkpoint.Snapshot saved = checkpoint != null && PackedBoard.fits(cells)
+                ? checkpoint.find(startNode.getState(), endNode.getState(), heuristic) : null;
+        if (saved != null && saved.kind == Checkpoint.IDASTAR) full = true; //ran out of room last time
+
+        List<State> path = null;
+        if (!full) {
+            if (saved != null) stats.resume(saved.stats);
+            else stats.start();
+
+            long budget = budget(cells);
+            path = PackedBoard.fits(cells)
+                    ? solvePacked(startNode, endNode, budget, saved) : solveBytes(startNode, endNode, budget);
+        }
+
+        if (full) { //out of room, start again with a search that needs none
+            IDAStarSearch search = new IDAStarSearch(heuristic);
+            search.setCheckpoint(checkpoint);
+            search.takeOver(stats.snapshot()); //a checkpoint of its own has these in already
+            path = search.solve(startNode, endNode);
+            stats = search.getStats(); //already reported by that search, with this one's part
+            return path;
+        }
+
+        stats.finish(path == null ? -1 : path.size() - 1);
+        if (checkpoint != null) checkpoint.clear();
+        return path;
+    }
+
+    private long budget(int cells) {
+        if (maxNodes > 0) return maxNodes;
+
+        long bytes = (PackedBoard.fits(cells) ? 8 : cells + 4) + NODE_BYTES;
+        if (checkpoint != null && PackedBoard.fits(cells)) bytes += SNAPSHOT_BYTES; //the changes live next to the tables
+
+        return heapBudget(bytes, share, cells);
+    }
+
+    /*
+     * Nodes of nodeBytes each that fit in a quarter of the heap split between share solvers
+     */
+    static long heapBudget(long nodeBytes, int share, int cells) {
+        long nodes = Runtime.getRuntime().maxMemory() / 4 / share / nodeBytes;
+
+        return Math.min(nodes, Integer.MAX_VALUE / Math.max(8, cells)); //ids and the byte arena are int indexed
+    }
+
+    private List<State> solvePacked(State startNode, State endNode, long budget, Checkpoint.Snapshot saved) {
+        int cells = startNode.getState().length;
+        MoveTable moves = MoveTable.forCells(cells);
+        long goal = PackedBoard.pack(endNode.getState());
+
+        HeuristicTable table = heuristic instanceof IncrementalHeuristic
+                ? ((IncrementalHeuristic) heuristic).table(endNode) : null;
+
+        if (open == null) {
+            open = new BucketQueue();
+            closed = new NodeTable(1 << 10);
+        }
+        open.clear();
+        closed.clear();
+
+        saving = checkpoint != null && checkpoint.held();
+        changeCount = 0;
+        inFile = 0;
+
+        if (saved != null) {
+            closed = saved.nodes; //read back with add, so it has its index
+            for (int i = 0; i < saved.open.length; i += 3) open.add(saved.open[i], saved.open[i + 1], saved.open[i + 2]);
+            inFile = closed.size();
+        } else {
+            long start = PackedBoard.pack(startNode.getState());
+            int startH = table != null ? table.calculateSum(start) : stats.evaluate(heuristic, start, goal, cells);
+            int startId = closed.add(start, 0, startH, NodeTable.NO_PARENT);
+            open.add(startH, 0, startId);
+        }
+
+        while (!open.isEmpty()) {
+            int f = open.peekF();
+            int id = open.poll();
+
+            //stale entry, a cheaper way to this board was found after it was pushed
+            if (f != closed.g(id) + closed.h(id)) continue;
+
+            long board = closed.board(id);
+            if (board == goal) {
+                stats.closed(closed.size());
+                return buildPath(closed, id, cells);
+            }
+
+            if (closed.size() >= budget) {
+                stats.closed(closed.size());
+                full = true;
+                return null;
+            }
+
+            if (saving && (stats.expanded & 0xFFF) == 0) {
+                if (checkpoint.due() || (long) closed.size() - inFile + changeCount >= budget >> 2 && checkpoint.flush()) {
+                    save(startNode, endNode, id);
+                }
+                saving = checkpoint.held(); //not after a failed write
+            }
+            if (saving) change(id);
+
+            stats.expanded++;
+            int blank = PackedBoard.blankIndex(board, cells);
+            int g = closed.g(id) + 1;
+
+            int n = moves.expand(board, blank, children, childBlanks);
+            stats.generated += n;
+            for (int k = 0; k < n; k++) push(table, id, board, blank, children[k], childBlanks[k], g, goal, cells);
+
+            stats.open(open.size());
+        }
+
+        stats.closed(closed.size());
+
+        return null;
+    }
+
+    private void push(HeuristicTable table, int parent, long board, int blank,
+                      long next, int index, int g, long goal, int cells) {
+        int id = closed.find(next);
+        if (id < 0) {
+            //only the moved tile changes, so the parent's h plus its delta is the child's h
+            int h = table != null
+                    ? stats.evaluate(table, closed.h(parent), PackedBoard.get(board, index), index, blank)
+                    : stats.evaluate(heuristic, next, goal, cells);
+
+            id = closed.add(next, g, h, parent);
+        } else if (closed.g(id) > g) {
+            closed.update(id, g, parent); //re-open with the cheaper g
+            if (saving) change(~id);
+        } else {
+            stats.duplicates++;
+            return; //already have this board for less
+        }
+
+        open.add(g + closed.h(id), g, id);
+    }
+
+    private List<State> solveBytes(State startNode, State endNode, long budget) {
+        int cells = startNode.getState().length;
+        MoveTable moves = MoveTable.forCells(cells);
+        byte[] goal = ByteNodeTable.pack(endNode.getState());
+
+        HeuristicTable table = heuristic instanceof IncrementalHeuristic
+                ? ((IncrementalHeuristic) heuristic).table(endNode) : null;
+
+        if (open == null) open = new BucketQueue();
+        if (byteClosed == null || byteClosed.cells() != cells) byteClosed = new ByteNodeTable(cells, 1 << 10);
+        ByteNodeTable closed = byteClosed;
+        open.clear();
+        closed.clear();
+
+        byte[] board = new byte[cells];
+        byte[] next = new byte[cells];
+
+        int startH = table != null ? table.calculateSum(startNode.getState()) : stats.evaluate(heuristic, startNode, endNode);
+        int startId = closed.add(ByteNodeTable.pack(startNode.getState()), 0, startH, ByteNodeTable.NO_PARENT);
+        open.add(startH, 0, startId);
+
+        while (!open.isEmpty()) {
+            int f = open.peekF();
+            int id = open.poll();
+
+            //stale entry, a cheaper way to this board was found after it was pushed
+            if (f != closed.g(id) + closed.h(id)) continue;
+
+            closed.board(id, board);
+            if (Arrays.equals(board, goal)) {
+                stats.closed(closed.size());
+                return buildPath(closed, id, cells);
+            }
+
+            if (closed.size() >= budget) {
+                stats.closed(closed.size());
+                full = true;
+                return null;
+            }
+
+            stats.expanded++;
+            int blank = 0;
+            while (board[blank] != 0) blank++;
+            int g = closed.g(id) + 1;
+
+            for (int k = 0, n = moves.count(blank); k < n; k++) {
+                int index = moves.target(blank, k);
+                System.arraycopy(board, 0, next, 0, cells);
+                next[blank] = next[index];
+                next[index] = 0;
+                stats.generated++;
+
+                int child = closed.find(next);
+                if (child < 0) {
+                    int h = table != null
+                            ? stats.evaluate(table, closed.h(id), board[index], index, blank)
+                            : stats.evaluate(heuristic, new State(ByteNodeTable.unpack(next), g), endNode);
+
+                    child = closed.add(next, g, h, id);
+                } else if (closed.g(child) > g) {
+                    closed.update(child, g, id); //re-open with the cheaper g
+                } else {
+                    stats.duplicates++;
+                    continue;
+                }
+
+                open.add(g + closed.h(child), g, child);
+            }
+            stats.open(open.size());
+        }
+
+        stats.closed(closed.size());
+        return null;
+    }
+
+    private void change(int entry) {
+        if (changeCount == changes.length) changes = Arrays.copyOf(changes, changeCount << 1);
+        changes[changeCount++] = entry;
+    }
+
+    /*
+     * Copies what changed since the last checkpoint, the checkpoint merges it
+     * into the one it has. current goes back on the open list
+     */
+    private void save(State startNode, State endNode, int current) {
+        Checkpoint.Snapshot snapshot = new Checkpoint.Snapshot(Checkpoint.ASTAR, String.valueOf(heuristic));
+        snapshot.start = startNode.getState().clone();
+        snapshot.goal = endNode.getState().clone();
+        snapshot.stats = stats.snapshot();
+        snapshot.from = inFile;
+        snapshot.nodes = closed.copy(inFile);
+        snapshot.changes = Arrays.copyOf(changes, changeCount);
+        snapshot.current = current;
+
+        //the file has the old g and parent of nodes re-opened since
+        int n = 0;
+        for (int i = 0; i < changeCount; i++) {
+            if (changes[i] < 0 && ~changes[i] < inFile) n++;
+        }
+        snapshot.updated = new int[n * 3];
+        for (int i = 0, k = 0; i < changeCount; i++) {
+            int id = ~changes[i];
+            if (changes[i] >= 0 || id >= inFile) continue;
+
+            snapshot.updated[k++] = id;
+            snapshot.updated[k++] = closed.g(id);
+            snapshot.updated[k++] = closed.parent(id);
+        }
+
+        inFile = closed.size();
+        changeCount = 0;
+        checkpoint.save(snapshot);
+    }
+
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    private static List<State> buildPath(NodeTable closed, int goal, int cells) {
+        LinkedList<State> path = new LinkedList<>();
+        for (int id = goal; id != NodeTable.NO_PARENT; id = closed.parent(id)) {
+            path.addFirst(new State(PackedBoard.unpack(closed.board(id), cells), closed.g(id)));
+        }
+
+        return path;
+    }
+
+    private static List<State> buildPath(ByteNodeTable closed, int goal, int cells) {
+        LinkedList<State> path = new LinkedList<>();
+        byte[] board = new byte[cells];
+        for (int id = goal; id != ByteNodeTable.NO_PARENT; id = closed.parent(id)) {
+            closed.board(id, board);
+            path.addFirst(new State(ByteNodeTable.unpack(board), closed.g(id)));
+        }
+
+        return path;
+    }
+}
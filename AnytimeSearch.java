@@ -0,0 +1,325 @@
+package com.company;
+
+import java.util.*;
+
+/*
+ * Weighted A* and anytime repairing A* (ARA*).
+ *
+ * Nodes are ordered by g + w * h. With w above 1 the search trusts the
+ * heuristic more than the path so far and dives at the goal, expanding far
+ * fewer nodes, but the path it returns can be up to w times longer than the
+ * shortest one.
+ *
+ * With a time budget the search doesn't stop there. It lowers w step by step
+ * and searches again, reusing every node it already has: only nodes whose g
+ * got cheaper since they were expanded (kept in an inconsistent list) and
+ * the old open list are looked at again, so each pass is far cheaper than a
+ * new search. Once w reaches 1 the path is the shortest one. When the budget
+ * runs out the best path so far is returned with getBound(), how many times
+ * longer than the shortest path it can at most be. The first path is always
+ * finished, a time budget that is too short only stops the passes after it.
+ *
+ * f values are kept in fixed point, SCALE per move. They are too spread out
+ * for a BucketQueue, so the open list is a LongHeap of (key << 32) | id,
+ * over a ByteNodeTable so any board up to 7 x 7 works.
+ *
+ * The nodes get a quarter of the heap, split between the solvers running at
+ * the same time. Running out of room ends the search with the best path so
+ * far, or, before there is one, hands the board to IDAStarSearch.
+ */
+class AnytimeSearch implements Solver {
+    private static final int SCALE = 64; //key units per move
+    private static final double STEP = 0.5; //w goes down by this after each pass
+    private static final int CHECK_MASK = 0xFF; //expansions between clock checks
+    private static final int NODE_BYTES = 56; //g, h, parent, hash, index, heap entries and pass marks of every node
+
+    private final Heuristic heuristic;
+    private final double initialWeight;
+    private final long budgetNanos; //0 stops after the first path: plain weighted A*
+    private final int share; //solvers sharing the heap
+    private final SearchStats own = new SearchStats();
+    private SearchStats stats = own;
+
+    private ByteNodeTable closed;
+    private final LongHeap open = new LongHeap(1 << 10);
+    private int[] expandedIn = new int[1 << 10]; //pass a node was last expanded in
+    private int[] listedIn = new int[1 << 10]; //pass a node was last put on the inconsistent list in
+    private int[] queuedIn = new int[1 << 10]; //pass a node was last put back on the open list for
+    private int[] inconsistent = new int[1 << 6]; //expanded nodes that got cheaper this pass
+    private int inconsistentSize;
+
+    private int pass;
+    private int weight; //w * SCALE
+    private int goalId;
+    private long deadline;
+    private double bound;
+    private long maxNodes;
+    private boolean full; //set when the last pass ran into maxNodes
+
+    /**
+     * @param heuristic    estimate to weigh
+     * @param weight       w of the first pass, 1 or more
+     * @param budgetMillis time to keep improving the first path, 0 for weighted A*
+     */
+    AnytimeSearch(Heuristic heuristic, double weight, long budgetMillis) {
+        this(heuristic, weight, budgetMillis, 1);
+    }
+
+    /**
+     * @param share solvers running at the same time, each gets that part of the heap
+     */
+    AnytimeSearch(Heuristic heuristic, double weight, long budgetMillis, int share) {
+        if (weight < 1) throw new IllegalArgumentException("Weight has to be at least 1, was " + weight);
+
+        this.heuristic = heuristic;
+        this.initialWeight = weight;
+        this.budgetNanos = budgetMillis * 1_000_000L;
+        this.share = Math.max(1, share);
+    }
+
+    public List<State> solve(State startNode, State endNode) {
+        stats = own;
+        stats.start();
+        List<State> path = search(startNode, endNode);
+
+        if (full && goalId < 0) { //out of room before the first path, start again with a search that needs none
+            IDAStarSearch search = new IDAStarSearch(heuristic);
+            stats.closed(closed.size());
+            search.takeOver(stats.snapshot());
+            path = search.solve(startNode, endNode);
+            stats = search.getStats(); //already reported by that search, with this one's part
+            bound = path == null ? Double.POSITIVE_INFINITY : 1;
+            return path;
+        }
+
+        stats.finish(path == null ? -1 : path.size() - 1);
+
+        return path;
+    }
+
+    /*
+     * Keeps the bound with the moves
+     */
+    public Solution solution(State startNode, State endNode) {
+        Solution solution = Solution.of(solve(startNode, endNode));
+
+        return solution == null ? null : solution.withBound(bound);
+    }
+
+    public boolean isOptimal() {
+        return false;
+    }
+
+    /*
+     * Most the last path can be longer than the shortest one, as a factor
+     */
+    public double getBound() {
+        return bound;
+    }
+
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    private List<State> search(State startNode, State endNode) {
+        bound = Double.POSITIVE_INFINITY;
+        if (!Solvability.isSolvable(startNode.getState(), endNode.getState())) return null;
+
+        int cells = startNode.getState().length;
+        MoveTable moves = MoveTable.forCells(cells);
+        byte[] goal = ByteNodeTable.pack(endNode.getState());
+        maxNodes = AStarSearch.heapBudget(cells + NODE_BYTES, share, cells);
+        full = false;
+        HeuristicTable table = heuristic instanceof IncrementalHeuristic
+                ? ((IncrementalHeuristic) heuristic).table(endNode) : null;
+
+        if (closed == null || closed.cells() != cells) closed = new ByteNodeTable(cells, 1 << 10);
+        closed.clear();
+        open.clear();
+        inconsistentSize = 0;
+        pass = 1;
+        Arrays.fill(expandedIn, 0);
+        Arrays.fill(listedIn, 0);
+        Arrays.fill(queuedIn, 0);
+        goalId = -1;
+        deadline = System.nanoTime() + budgetNanos;
+
+        double w = initialWeight;
+        weight = (int) Math.round(w * SCALE);
+
+        int startH = table != null ? table.calculateSum(startNode.getState()) : stats.evaluate(heuristic, startNode, endNode);
+        int start = closed.add(ByteNodeTable.pack(startNode.getState()), 0, startH, ByteNodeTable.NO_PARENT);
+        if (startH == 0 && Arrays.equals(ByteNodeTable.pack(startNode.getState()), goal)) goalId = start;
+        open.add(entry(start));
+
+        byte[] board = new byte[cells];
+        byte[] next = new byte[cells];
+
+        while (true) {
+            boolean done = improvePath(moves, table, endNode, goal, board, next);
+            if (goalId < 0) return null; //nothing left to try
+
+            if (done) bound = Math.min(w, (double) closed.g(goalId) / Math.max(1, lowestF()));
+            else if (pass == 1) bound = (double) closed.g(goalId) / Math.max(1, lowestF()); //cut short by maxNodes
+            if (!done || w <= 1 || budgetNanos == 0 || System.nanoTime() > deadline) break;
+
+            w = Math.max(1, w - STEP);
+            weight = (int) Math.round(w * SCALE);
+            reopen();
+        }
+
+        stats.closed(closed.size());
+        return buildPath(cells);
+    }
+
+    /**
+     * One pass: expands nodes in key order until the goal's g is no worse than
+     * the cheapest key left
+     *
+     * @return false when the deadline or maxNodes stopped the pass early
+     */
+    private boolean improvePath(MoveTable moves, HeuristicTable table, State endNode, byte[] goal, byte[] board, byte[] next) {
+        int cells = board.length;
+
+        while (!open.isEmpty()) {
+            long top = open.peek();
+            int id = (int) top;
+
+            if ((int) (top >>> 32) != key(id) || expandedIn[id] == pass) { //stale, re-keyed or expanded already
+                open.poll();
+                continue;
+            }
+            if (goalId >= 0 && closed.g(goalId) * SCALE <= (int) (top >>> 32)) return true;
+
+            //the first pass always finishes, later ones stop at the deadline
+            if (pass > 1 && (stats.expanded & CHECK_MASK) == 0 && System.nanoTime() > deadline) return false;
+            if (closed.size() >= maxNodes) {
+                full = true;
+                return false;
+            }
+
+            open.poll();
+            expandedIn[id] = pass;
+            stats.expanded++;
+
+            closed.board(id, board);
+            int blank = 0;
+            while (board[blank] != 0) blank++;
+            int g = closed.g(id) + 1;
+
+            for (int k = 0, n = moves.count(blank); k < n; k++) {
+                int index = moves.target(blank, k);
+                System.arraycopy(board, 0, next, 0, cells);
+                next[blank] = next[index];
+                next[index] = 0;
+                stats.generated++;
+
+                int child = closed.find(next);
+                if (child < 0) {
+                    int h = table != null
+                            ? stats.evaluate(table, closed.h(id), board[index], index, blank)
+                            : stats.evaluate(heuristic, new State(ByteNodeTable.unpack(next), g), endNode);
+
+                    child = closed.add(next, g, h, id);
+                    grow(child);
+                    if (h == 0 && Arrays.equals(next, goal)) goalId = child;
+                } else if (closed.g(child) > g) {
+                    closed.update(child, g, id);
+                } else {
+                    stats.duplicates++;
+                    continue;
+                }
+
+                if (expandedIn[child] == pass) { //already expanded this pass, wait for the next one
+                    if (listedIn[child] != pass) {
+                        listedIn[child] = pass;
+                        if (inconsistentSize == inconsistent.length) inconsistent = Arrays.copyOf(inconsistent, inconsistentSize << 1);
+                        inconsistent[inconsistentSize++] = child;
+                    }
+                    continue;
+                }
+
+                open.add(entry(child));
+            }
+            stats.open(open.size());
+        }
+
+        return true;
+    }
+
+    /*
+     * Next pass: the open list and the inconsistent nodes, keyed by the new w
+     */
+    private void reopen() {
+        int last = pass++;
+        int[] ids = new int[inconsistentSize + open.size()];
+        int n = 0;
+
+        for (int i = 0; i < inconsistentSize; i++) {
+            int id = inconsistent[i];
+            queuedIn[id] = pass;
+            ids[n++] = id;
+        }
+        inconsistentSize = 0;
+
+        while (!open.isEmpty()) {
+            int id = (int) open.poll();
+
+            //still open: not expanded last pass, and only once however many entries it had
+            if (expandedIn[id] != last && queuedIn[id] != pass) {
+                queuedIn[id] = pass;
+                ids[n++] = id;
+            }
+        }
+
+        for (int i = 0; i < n; i++) open.add(entry(ids[i]));
+    }
+
+    /*
+     * Smallest g + h over the open list, the shortest path is at least this long
+     */
+    private int lowestF() {
+        int lowest = Integer.MAX_VALUE;
+
+        for (int i = 0; i < open.size(); i++) {
+            int id = (int) open.get(i);
+            if (expandedIn[id] != pass) lowest = Math.min(lowest, closed.g(id) + closed.h(id));
+        }
+        for (int i = 0; i < inconsistentSize; i++) {
+            int id = inconsistent[i];
+            lowest = Math.min(lowest, closed.g(id) + closed.h(id));
+        }
+
+        return Math.min(lowest, closed.g(goalId));
+    }
+
+    private int key(int id) {
+        return closed.g(id) * SCALE + weight * closed.h(id);
+    }
+
+    private long entry(int id) {
+        return ((long) key(id) << 32) | id;
+    }
+
+    private void grow(int id) {
+        if (id < expandedIn.length) return;
+
+        expandedIn = Arrays.copyOf(expandedIn, expandedIn.length << 1);
+        listedIn = Arrays.copyOf(listedIn, listedIn.length << 1);
+        queuedIn = Arrays.copyOf(queuedIn, queuedIn.length << 1);
+    }
+
+    private List<State> buildPath(int cells) {
+        LinkedList<State> path = new LinkedList<>();
+        byte[] board = new byte[cells];
+        for (int id = goalId; id != ByteNodeTable.NO_PARENT; id = closed.parent(id)) {
+            closed.board(id, board);
+            path.addFirst(new State(ByteNodeTable.unpack(board), 0));
+        }
+
+        List<State> levelled = new ArrayList<>(path.size());
+        for (State s : path) levelled.add(new State(s.getState(), levelled.size()));
+
+        return levelled;
+    }
+}
@@ -0,0 +1,411 @@
+package com.company;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * Headless entry point for solving many puzzles in one run.
+ *
+ * Reads one puzzle per line from a file or stdin, in the same space separated
+ * format the dialogs take. The start state comes first, the goal follows
+ * after a '|' and defaults to 1 2 .. n-1 0 when it is left out. Blank lines
+ * and lines starting with # are skipped.
+ *
+ *   4 8 12 15 3 6 7 14 2 10 11 13 1 5 9 0
+ *   2 4 3 1 0 6 7 5 8 | 1 2 3 4 5 6 7 8 0
+ *
+ * One result line is written per puzzle as soon as it is solved, either as
+ * plain text or as a JSON object, with the solver's SearchStats and the
+ * moves of the blank as U/D/L/R. The boards along the way are only written
+ * with --boards. Only the search classes are used here, so no AWT or Swing
+ * class is ever loaded.
+ *
+ * With --threads n the puzzles are spread over a work stealing ForkJoinPool.
+ * Every worker thread gets its own solver, so search buffers are reused from
+ * one puzzle to the next without locking, while the heuristic and its goal
+ * tables are shared since they never change once built. Results still come
+ * out in input order, at most 64 puzzles per thread are in flight.
+ *
+ * Solutions are kept in a SolutionCache shared by all threads, so repeated
+ * puzzles (or the same puzzle with its tiles renamed) are not searched
+ * again. --cache-file keeps it between runs, --cache 0 turns it off.
+ */
+public class BatchSolver {
+    private static final String USAGE = "Usage: BatchSolver [--solver astar|ida|bidi|bfs|hda|wastar|ara|table|external|sma]"
+            + " [--heuristic manhattan|tiles|linear|walking|pdb|perfect|max] [--threads n] [--json]"
+            + " [--weight w] [--budget ms] [--nodes n] [--cache n] [--cache-file path] [--boards] [file|-]";
+
+    public static void main(String[] args) throws IOException {
+        String solverName = "astar";
+        String heuristicName = "manhattan";
+        boolean json = false;
+        boolean boards = false;
+        int threads = 1;
+        double weight = 2;
+        long budget = 1000;
+        long nodes = 0;
+        int cacheSize = 4096;
+        String cacheFile = null;
+        String file = null;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--solver") && i + 1 < args.length) solverName = args[++i];
+            else if (args[i].equals("--heuristic") && i + 1 < args.length) heuristicName = args[++i];
+            else if (args[i].equals("--threads") && i + 1 < args.length) threads = threads(args[++i]);
+            else if (args[i].equals("--json")) json = true;
+            else if (args[i].equals("--weight") && i + 1 < args.length) weight = weight(args[++i]);
+            else if (args[i].equals("--budget") && i + 1 < args.length) budget = budget(args[++i]);
+            else if (args[i].equals("--nodes") && i + 1 < args.length) nodes = nodes(args[++i]);
+            else if (args[i].equals("--boards")) boards = true;
+            else if (args[i].equals("--cache") && i + 1 < args.length) cacheSize = cacheSize(args[++i]);
+            else if (args[i].equals("--cache-file") && i + 1 < args.length) cacheFile = args[++i];
+            else if (!args[i].startsWith("--") && file == null) file = args[i];
+            else if (!args[i].startsWith("--")) usage("Only one file, " + file + " and " + args[i] + " given");
+            else usage("Unknown option " + args[i]);
+        }
+        if (file == null) file = "-";
+
+        Heuristic heuristic = heuristic(heuristicName);
+        if (heuristic == null) usage("Unknown heuristic " + heuristicName);
+
+        if (solver(solverName, heuristic, weight, budget, nodes, threads) == null) usage("Unknown solver " + solverName);
+
+        //one solver per thread, they all share the heuristic and the cache
+        String name = solverName;
+        double w = weight;
+        long millis = budget;
+        long maxNodes = nodes;
+        int share = threads;
+        SolutionCache cache = cacheSize > 0
+                ? new SolutionCache(cacheSize, cacheFile == null ? null : Paths.get(cacheFile)) : null;
+        ThreadLocal<Solver> solvers = ThreadLocal.withInitial(() -> {
+            Solver solver = new NormalizedSolver(solver(name, heuristic, w, millis, maxNodes, share)); //heuristic tables built once per blank square
+
+            return cache == null ? solver : new CachedSolver(solver, cache);
+        });
+
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        Deque<CompletableFuture<Result>> pending = new ArrayDeque<>();
+
+        Reader in = file.equals("-")
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+
+        try (BufferedReader reader = new BufferedReader(in)) {
+            PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                if (pool == null) {
+                    print(out, solve(lineNumber, line, solvers.get()), json, boards);
+                    continue;
+                }
+
+                int number = lineNumber;
+                String puzzle = line;
+                pending.add(CompletableFuture.supplyAsync(() -> solve(number, puzzle, solvers.get()), pool));
+
+                if (pending.size() >= threads * 64) print(out, pending.poll().join(), json, boards);
+            }
+
+            while (!pending.isEmpty()) print(out, pending.poll().join(), json, boards);
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+
+        if (cache != null) cache.save();
+    }
+
+    private static void print(PrintWriter out, Result result, boolean json, boolean boards) {
+        out.println(json ? result.toJson() : result.toString());
+
+        if (boards && !json && result.solution != null) { //rendered one at a time, never held
+            for (State s : result.solution.states()) out.println(s);
+        }
+        out.flush(); //stream results, a batch can take hours
+    }
+
+    private static int threads(String value) {
+        try {
+            int threads = Integer.parseInt(value);
+            if (threads > 0) return threads;
+        } catch (NumberFormatException ignored) {
+        }
+
+        usage("--threads needs a positive number");
+        return 1;
+    }
+
+    private static double weight(String value) {
+        try {
+            double weight = Double.parseDouble(value);
+            if (weight >= 1) return weight;
+        } catch (NumberFormatException ignored) {
+        }
+
+        usage("--weight needs a number of at least 1");
+        return 1;
+    }
+
+    private static long budget(String value) {
+        try {
+            long millis = Long.parseLong(value);
+            if (millis >= 0) return millis;
+        } catch (NumberFormatException ignored) {
+        }
+
+        usage("--budget needs a number of milliseconds");
+        return 0;
+    }
+
+    private static long nodes(String value) {
+        try {
+            long nodes = Long.parseLong(value);
+            if (nodes >= 0) return nodes;
+        } catch (NumberFormatException ignored) {
+        }
+
+        usage("--nodes needs a number of nodes, 0 splits a quarter of the heap between the threads");
+        return 0;
+    }
+
+    private static int cacheSize(String value) {
+        try {
+            int size = Integer.parseInt(value);
+            if (size >= 0) return size;
+        } catch (NumberFormatException ignored) {
+        }
+
+        usage("--cache needs a number of solutions, 0 turns it off");
+        return 0;
+    }
+
+    static Heuristic heuristic(String name) {
+        switch (name) {
+            case "manhattan":
+                return new ManhattanDistance();
+            case "tiles":
+                return new TilePlacement();
+            case "linear":
+                return new LinearConflict();
+            case "walking":
+                return new WalkingDistance();
+            case "pdb":
+                return new PatternDatabase();
+            case "perfect": //3 x 3 only
+                return new EightPuzzleTable();
+            case "max":
+                return new MaxHeuristic(Arrays.asList(new LinearConflict(), new WalkingDistance()));
+            default:
+                return null;
+        }
+    }
+
+    static Solver solver(String name, Heuristic heuristic) {
+        return solver(name, heuristic, 2, 1000, 0, 1);
+    }
+
+    /**
+     * @param weight       w of the weighted searches
+     * @param budgetMillis how long ara keeps improving its first path
+     * @param maxNodes     most nodes sma keeps, 0 works it out from the heap
+     * @param threads      solvers running at once, sharing the heap
+     */
+    static Solver solver(String name, Heuristic heuristic, double weight, long budgetMillis, long maxNodes, int threads) {
+        switch (name) {
+            case "astar":
+                return new AStarSearch(heuristic, Long.getLong("astar.maxNodes", 0), threads);
+            case "ida":
+                return new IDAStarSearch(heuristic);
+            case "bidi":
+                return new BidirectionalSearch(heuristic, 0, threads);
+            case "bfs": //bidirectional breadth first, no heuristic
+                return new BidirectionalSearch(null, 0, threads);
+            case "hda": //one hard board over every core
+                return new HDAStarSearch(heuristic, Runtime.getRuntime().availableProcessors(), threads);
+            case "wastar": //f = g + w * h, at most w times the shortest path
+                return new AnytimeSearch(heuristic, weight, 0, threads);
+            case "ara": //weighted first, then tighter until the budget runs out
+                return new AnytimeSearch(heuristic, weight, budgetMillis, threads);
+            case "external": //layers on disk, for searches bigger than the heap
+                return new ExternalSearch(heuristic);
+            case "sma": //never more than maxNodes nodes, drops the worst leaves
+                return new SMAStarSearch(heuristic, maxNodes, threads);
+            case "table": //3 x 3 read off the distance table, anything else goes to astar, manhattan for perfect
+                return new TableWalk(heuristic instanceof EightPuzzleTable
+                        ? (EightPuzzleTable) heuristic : new EightPuzzleTable(), heuristic, threads);
+            default:
+                return null;
+        }
+    }
+
+    static Result solve(int lineNumber, String line, Solver solver) {
+        String[] parts = line.split("\\|");
+        int[] start = parseBoard(parts[0]);
+        int[] goal = parts.length == 2 ? parseBoard(parts[1]) : null;
+
+        if (parts.length > 2 || start == null || (parts.length == 2 && goal == null)) {
+            return Result.invalid(lineNumber, "Invalid Matrix");
+        }
+        if (goal == null) goal = defaultGoal(start.length);
+
+        String error = validate(start, goal);
+        if (error != null) return Result.invalid(lineNumber, error);
+        if (!Solvability.isSolvable(start, goal)) {
+            return new Result(lineNumber, "unsolvable", null, null, "No moves lead from start to goal");
+        }
+
+        Solution solution;
+        try {
+            solution = solver.solution(new State(start, 0), new State(goal, 0));
+        } catch (RuntimeException e) { //e.g. a heuristic that can't handle this board size
+            return new Result(lineNumber, "error", null, null, String.valueOf(e.getMessage()));
+        }
+
+        return new Result(lineNumber, solution == null ? "unsolved" : "solved",
+                solution, solver.getStats().copy(), null); //the solver is reused
+    }
+
+    /*
+     * Same rules as the dialogs: digits and spaces only, null when the text isn't a board
+     */
+    static int[] parseBoard(String text) {
+        if (!text.replaceAll("\\d+", "").trim().equals("") || text.trim().isEmpty()) return null;
+
+        try {
+            return Utils.stringToIntArr(text.replaceAll("\\s+", " ").trim().split(" "));
+        } catch (NumberFormatException e) { //too big for an int
+            return null;
+        }
+    }
+
+    static int[] defaultGoal(int cells) {
+        int[] goal = new int[cells];
+        for (int i = 0; i < cells - 1; i++) goal[i] = i + 1;
+
+        return goal;
+    }
+
+    /**
+     * Same checks as the dialogs
+     *
+     * @return why the boards can't be used, or null when they are fine
+     */
+    static String validate(int[] start, int[] goal) {
+        int sLen = start.length;
+        int eLen = goal.length;
+
+        if (Math.sqrt(sLen) % 1 != 0.0 || Math.sqrt(eLen) % 1 != 0.0) return "Have to be an N x N matrix";
+        if (sLen != eLen) return "Matrix sizes don't match A=" + sLen + " B=" + eLen;
+        if (Math.sqrt(sLen) > MoveTable.MAX_WIDTH) return "Boards can be at most " + MoveTable.MAX_WIDTH + " x " + MoveTable.MAX_WIDTH;
+
+        int[] sortedStart = start.clone();
+        int[] sortedEnd = goal.clone();
+        Arrays.sort(sortedStart);
+        Arrays.sort(sortedEnd);
+
+        for (int i = 0; i < sLen; i++) {
+            if (sortedStart[i] != i || sortedEnd[i] != i) return "Matrix is not valid must hold 0 to " + (sLen - 1);
+        }
+
+        return null;
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+
+    /*
+     * Outcome of one input line
+     */
+    static final class Result {
+        final int line;
+        final String status; //solved, unsolved, unsolvable, invalid or error
+        final Solution solution; //null unless solved
+        final SearchStats stats; //null unless the solver ran
+        final String message;
+
+        Result(int line, String status, Solution solution, SearchStats stats, String message) {
+            this.line = line;
+            this.status = status;
+            this.solution = solution;
+            this.stats = stats;
+            this.message = message;
+        }
+
+        static Result invalid(int line, String message) {
+            return new Result(line, "invalid", null, null, message);
+        }
+
+        public String toString() {
+            if (message != null) return line + " " + status + " " + message;
+
+            return String.format(Locale.ROOT, "%d %s moves=%d bound=%.3f time_ms=%.3f %s solution=%s",
+                    line, status, moves(), bound(), stats.elapsedNanos / 1e6, stats, solution == null ? "-" : solution);
+        }
+
+        public String toJson() {
+            if (message != null) {
+                return "{\"line\":" + line + ",\"status\":\"" + status + "\",\"message\":\"" + escape(message) + "\"}";
+            }
+
+            return String.format(Locale.ROOT, "{\"line\":%d,\"status\":\"%s\",\"moves\":%d,\"bound\":%.3f,\"timeMs\":%.3f,%s,\"solution\":%s}",
+                    line, status, moves(), bound(), stats.elapsedNanos / 1e6, stats.toJson(),
+                    solution == null ? "null" : "\"" + solution + "\"");
+        }
+
+        /*
+         * message as the inside of a JSON string, control characters included
+         */
+        private static String escape(String text) {
+            StringBuilder out = new StringBuilder(text.length() + 8);
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '"':
+                        out.append("\\\"");
+                        break;
+                    case '\\':
+                        out.append("\\\\");
+                        break;
+                    case '\n':
+                        out.append("\\n");
+                        break;
+                    case '\r':
+                        out.append("\\r");
+                        break;
+                    case '\t':
+                        out.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) out.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                        else out.append(c);
+                }
+            }
+
+            return out.toString();
+        }
+
+        int moves() {
+            return solution == null ? -1 : solution.length();
+        }
+
+        /*
+         * 1 when moves is the shortest, see Solution.getBound
+         */
+        double bound() {
+            return solution == null ? 1 : solution.getBound();
+        }
+    }
+}
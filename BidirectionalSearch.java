@@ -0,0 +1,240 @@
+package com.company;
+
+import java.util.*;
+
+/*
+ * Bidirectional A*: one search forward from the start towards the goal and
+ * one backward from the goal towards the start (every move can be undone, so
+ * searching backwards is just a forward search with the boards swapped).
+ *
+ * Each side has its own BucketQueue open list and NodeTable, and the side with
+ * the smaller open list is expanded next. Every generated board is looked up
+ * in the other side's table, a hit is a complete path of cost gForward +
+ * gBackward and the cheapest one is kept. The search stops once that cost is
+ * no bigger than the lowest f on either open list, or than the lowest g on
+ * the forward open list plus the lowest g on the backward one plus the move
+ * joining them: with an admissible heuristic every path still to be found
+ * costs at least that much, so the kept path is the shortest. The g test is
+ * what lets the frontiers stop where they meet instead of running on until
+ * one f catches up.
+ *
+ * Passing a null heuristic gives a bidirectional breadth first search for
+ * boards where no heuristic helps. Either way the two frontiers meet around
+ * half the solution depth, so far fewer nodes are explored on deep puzzles.
+ *
+ * Like AStarSearch both tables together get a quarter of the heap, split
+ * between the solvers running at the same time. Once they are full the
+ * board is handed to IDAStarSearch, with ManhattanDistance when there is no
+ * heuristic.
+ */
+class BidirectionalSearch implements Solver {
+    private static final int NODE_BYTES = 44; //board, g, h, parent, index and open list share of every node
+
+    private final Heuristic heuristic;
+    private final long maxNodes; //0 works out a budget from the heap
+    private final int share; //solvers sharing the heap
+    private SearchStats stats = new SearchStats();
+
+    private final long[] children = new long[4];
+    private final int[] childBlanks = new int[4];
+
+    private int best;
+    private long meeting; //board where the cheapest path found so far crosses over
+
+    BidirectionalSearch(Heuristic heuristic) {
+        this(heuristic, 0, 1);
+    }
+
+    /**
+     * @param maxNodes most nodes kept on both sides before handing over to IDA*, 0 works it out from the heap
+     * @param share    solvers running at the same time, each gets that part of the heap
+     */
+    BidirectionalSearch(Heuristic heuristic, long maxNodes, int share) {
+        this.heuristic = heuristic;
+        this.maxNodes = maxNodes;
+        this.share = Math.max(1, share);
+    }
+
+    public List<State> solve(State startNode, State endNode) {
+        int cells = startNode.getState().length;
+
+        if (!PackedBoard.fits(cells)) { //only packed boards have the tables this needs
+            AStarSearch search = new AStarSearch(heuristic != null ? heuristic : (current, goal) -> 0, maxNodes, share); //no heuristic is breadth first
+            List<State> path = search.solve(startNode, endNode);
+            stats = search.getStats(); //already reported by that search
+            return path;
+        }
+
+        stats = new SearchStats(); //the last one may be the fallback's
+        stats.start();
+
+        Side forward = new Side(startNode, endNode);
+        Side backward = new Side(endNode, startNode);
+
+        best = Integer.MAX_VALUE;
+        if (forward.root == backward.root) {
+            best = 0;
+            meeting = forward.root;
+        }
+
+        MoveTable moves = MoveTable.forCells(cells);
+        long budget = maxNodes > 0 ? maxNodes : AStarSearch.heapBudget(8 + NODE_BYTES, share, cells);
+
+        while (true) {
+            int forwardF = forward.minF();
+            int backwardF = backward.minF();
+
+            if (forwardF == Integer.MAX_VALUE || backwardF == Integer.MAX_VALUE) break; //one side ran out
+            if (best <= Math.max(Math.max(forwardF, backwardF), forward.minG() + backward.minG() + 1)) break; //nothing left can be cheaper
+
+            if (forward.closed.size() + backward.closed.size() >= budget) { //out of room, start again with a search that needs none
+                IDAStarSearch search = new IDAStarSearch(heuristic != null ? heuristic : new ManhattanDistance());
+                stats.closed(forward.closed.size() + backward.closed.size());
+                search.takeOver(stats.snapshot());
+                List<State> path = search.solve(startNode, endNode);
+                stats = search.getStats(); //already reported by that search, with this one's part
+                return path;
+            }
+
+            if (forward.open.size() <= backward.open.size()) expand(forward, backward, moves, cells);
+            else expand(backward, forward, moves, cells);
+
+            stats.open(forward.open.size() + backward.open.size());
+        }
+
+        stats.closed(forward.closed.size() + backward.closed.size());
+        List<State> path = best == Integer.MAX_VALUE ? null : buildPath(forward, backward, cells);
+        stats.finish(path == null ? -1 : path.size() - 1);
+
+        return path;
+    }
+
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    private void expand(Side side, Side other, MoveTable moves, int cells) {
+        int id = side.poll();
+        NodeTable closed = side.closed;
+
+        long board = closed.board(id);
+        int g = closed.g(id) + 1;
+        int blank = PackedBoard.blankIndex(board, cells);
+        stats.expanded++;
+
+        int n = moves.expand(board, blank, children, childBlanks);
+        stats.generated += n;
+        for (int k = 0; k < n; k++) {
+            long next = children[k];
+
+            //meet check against everything the other side has reached
+            int seen = other.closed.find(next);
+            if (seen >= 0 && g + other.closed.g(seen) < best) {
+                best = g + other.closed.g(seen);
+                meeting = next;
+            }
+
+            int child = closed.find(next);
+            if (child < 0) {
+                int h = side.table != null
+                        ? stats.evaluate(side.table, closed.h(id), PackedBoard.get(board, childBlanks[k]), childBlanks[k], blank)
+                        : side.estimate(next, cells);
+
+                child = closed.add(next, g, h, id);
+            } else if (closed.g(child) > g) {
+                closed.update(child, g, id); //re-open with the cheaper g
+            } else {
+                stats.duplicates++;
+                continue;
+            }
+
+            side.push(g + closed.h(child), g, child);
+        }
+    }
+
+    private List<State> buildPath(Side forward, Side backward, int cells) {
+        LinkedList<State> path = new LinkedList<>();
+
+        //start .. meeting
+        for (int id = forward.closed.find(meeting); id != NodeTable.NO_PARENT; id = forward.closed.parent(id)) {
+            path.addFirst(new State(PackedBoard.unpack(forward.closed.board(id), cells), 0));
+        }
+
+        //meeting's successor .. goal, the backward side's parents point towards the goal
+        int id = backward.closed.find(meeting);
+        for (id = backward.closed.parent(id); id != NodeTable.NO_PARENT; id = backward.closed.parent(id)) {
+            path.addLast(new State(PackedBoard.unpack(backward.closed.board(id), cells), 0));
+        }
+
+        List<State> levelled = new ArrayList<>(path.size());
+        for (State s : path) levelled.add(new State(s.getState(), levelled.size()));
+
+        return levelled;
+    }
+
+    /*
+     * One direction of the search, heading for target
+     */
+    private final class Side {
+        final long root;
+        final long target;
+        final HeuristicTable table;
+        final BucketQueue open = new BucketQueue();
+        final NodeTable closed = new NodeTable(1 << 10);
+        private int[] gCount = new int[64]; //open entries by g, stale ones too
+        private int lowestG;
+
+        Side(State from, State to) {
+            int cells = from.getState().length;
+            root = PackedBoard.pack(from.getState());
+            target = PackedBoard.pack(to.getState());
+            table = heuristic instanceof IncrementalHeuristic ? ((IncrementalHeuristic) heuristic).table(to) : null;
+
+            int h = table != null ? table.calculateSum(root) : estimate(root, cells);
+            int id = closed.add(root, 0, h, NodeTable.NO_PARENT);
+            push(h, 0, id);
+        }
+
+        void push(int f, int g, int id) {
+            if (g >= gCount.length) gCount = Arrays.copyOf(gCount, Math.max(g + 1, gCount.length << 1));
+            gCount[g]++;
+            if (g < lowestG) lowestG = g;
+
+            open.add(f, g, id);
+        }
+
+        int poll() {
+            gCount[open.peekG()]--;
+
+            return open.poll();
+        }
+
+        /*
+         * Lowest g on the open list, stale entries can only make it lower than it is
+         */
+        int minG() {
+            while (lowestG < gCount.length && gCount[lowestG] == 0) lowestG++;
+
+            return lowestG;
+        }
+
+        int estimate(long board, int cells) {
+            return heuristic == null ? 0 : stats.evaluate(heuristic, board, target, cells);
+        }
+
+        /*
+         * Lowest f on the open list, stale entries are dropped on the way
+         */
+        int minF() {
+            while (!open.isEmpty()) {
+                int f = open.peekF();
+                int id = open.peek();
+
+                if (f == closed.g(id) + closed.h(id)) return f;
+                poll();
+            }
+
+            return Integer.MAX_VALUE;
+        }
+    }
+}
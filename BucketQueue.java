@@ -0,0 +1,120 @@
+package com.company;
+
+import java.util.Arrays;
+
+/*
+ * Open list for searches where f and g are small integers, which they always
+ * are here: one bucket per f, split into one stack of node ids per g.
+ *
+ * poll() takes from the lowest f, and within it from the highest g: of the
+ * nodes that look equally good the one deepest in the search is closest to
+ * the goal, so the last f layer is crossed with far fewer expansions than a
+ * heap that breaks ties at random. Nodes with the same f and g come out last
+ * in, first out.
+ *
+ * add is O(1). poll is O(1) apart from stepping over emptied buckets, and
+ * the lowest f only moves up between adds of a lower one. Stacks keep their
+ * arrays after clear() so a reused queue stops allocating once warmed up.
+ */
+final class BucketQueue {
+    private int[][][] stacks = new int[64][][]; //[f][g] -> ids
+    private int[][] sizes = new int[64][]; //[f][g]
+    private int[] counts = new int[64]; //ids per f
+    private int[] topG = new int[64]; //no id in f above this g
+    private int minF; //no id below this f
+    private int maxF = -1; //highest f ever used, where clear() stops
+    private int size;
+
+    public void add(int f, int g, int id) {
+        if (f >= counts.length) growF(f);
+        if (sizes[f] == null || g >= sizes[f].length) growG(f, g);
+
+        int[] stack = stacks[f][g];
+        int n = sizes[f][g];
+        if (stack == null) stacks[f][g] = stack = new int[16];
+        else if (n == stack.length) stacks[f][g] = stack = Arrays.copyOf(stack, n << 1);
+
+        stack[n] = id;
+        sizes[f][g] = n + 1;
+        counts[f]++;
+        if (g > topG[f]) topG[f] = g;
+        if (f < minF || size == 0) minF = f;
+        if (f > maxF) maxF = f;
+        size++;
+    }
+
+    /*
+     * f of the id poll() will return next, only valid when not empty
+     */
+    public int peekF() {
+        while (counts[minF] == 0) minF++;
+
+        return minF;
+    }
+
+    /*
+     * g of the id poll() will return next, only valid when not empty
+     */
+    public int peekG() {
+        int f = peekF();
+        while (sizes[f][topG[f]] == 0) topG[f]--;
+
+        return topG[f];
+    }
+
+    /*
+     * The id poll() will return next, only valid when not empty
+     */
+    public int peek() {
+        int f = peekF();
+        int g = peekG();
+
+        return stacks[f][g][sizes[f][g] - 1];
+    }
+
+    public int poll() {
+        int f = peekF();
+        int g = peekG();
+
+        counts[f]--;
+        size--;
+
+        return stacks[f][g][--sizes[f][g]];
+    }
+
+    public void clear() {
+        for (int f = 0; f <= maxF; f++) {
+            if (sizes[f] != null) Arrays.fill(sizes[f], 0);
+            counts[f] = 0;
+            topG[f] = 0;
+        }
+
+        minF = 0;
+        maxF = -1;
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void growF(int f) {
+        int length = Math.max(f + 1, counts.length << 1);
+        stacks = Arrays.copyOf(stacks, length);
+        sizes = Arrays.copyOf(sizes, length);
+        counts = Arrays.copyOf(counts, length);
+        topG = Arrays.copyOf(topG, length);
+    }
+
+    private void growG(int f, int g) {
+        int length = Math.max(g + 1, Math.max(16, f + 1)); //g can't pass f with h >= 0
+        if (sizes[f] != null) length = Math.max(length, sizes[f].length << 1);
+
+        stacks[f] = stacks[f] == null ? new int[length][] : Arrays.copyOf(stacks[f], length);
+        sizes[f] = sizes[f] == null ? new int[length] : Arrays.copyOf(sizes[f], length);
+    }
+}
@@ -0,0 +1,183 @@
+package com.company;
+
+import java.util.Arrays;
+
+/*
+ * NodeTable for boards too big to pack into a long, up to 7 x 7.
+ *
+ * Every board is stored as one byte per square in a single arena array, node
+ * id * cells onwards, next to the same parallel g, h and parent arrays
+ * NodeTable has. The hash of every board is kept so growing the index and
+ * most failed comparisons never touch the arena.
+ *
+ * A 5 x 5 node costs 25 + 2 + 2 + 4 + 4 bytes plus 8 bytes of index, about
+ * 45 bytes, where a State with its int[] and a HashMap entry took over 200.
+ */
+final class ByteNodeTable {
+    static final int NO_PARENT = -1;
+
+    private final int cells;
+    private byte[] boards;
+    private int[] hashes;
+    private short[] g;
+    private short[] h;
+    private int[] parents;
+    private int size;
+
+    private int[] index; //node id + 1, 0 is an empty slot
+    private int mask;
+
+    ByteNodeTable(int cells, int expected) {
+        this.cells = cells;
+        int capacity = Math.max(16, expected);
+        boards = new byte[capacity * cells];
+        hashes = new int[capacity];
+        g = new short[capacity];
+        h = new short[capacity];
+        parents = new int[capacity];
+
+        index = new int[Integer.highestOneBit(capacity - 1) << 2];
+        mask = index.length - 1;
+    }
+
+    public static byte[] pack(int[] tiles) {
+        byte[] board = new byte[tiles.length];
+        for (int i = 0; i < tiles.length; i++) board[i] = (byte) tiles[i];
+
+        return board;
+    }
+
+    public static int[] unpack(byte[] board) {
+        int[] tiles = new int[board.length];
+        for (int i = 0; i < board.length; i++) tiles[i] = board[i];
+
+        return tiles;
+    }
+
+    /*
+     * Empties the table but keeps the arrays so the next search can reuse them
+     */
+    public void clear() {
+        Arrays.fill(index, 0);
+        size = 0;
+    }
+
+    /**
+     * @param board one byte per square
+     * @return id of the node holding this board or -1 if it was never added
+     */
+    public int find(byte[] board) {
+        int hash = hash(board);
+
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = index[slot] - 1;
+            if (id < 0) return -1;
+            if (hashes[id] == hash && matches(id, board)) return id;
+        }
+    }
+
+    /**
+     * Adds a board that is not in the table yet
+     *
+     * @return id of the new node
+     */
+    public int add(byte[] board, int gValue, int hValue, int parent) {
+        if (size == hashes.length) growNodes();
+        if ((size + 1) << 1 > index.length) growIndex();
+
+        int id = size++;
+        System.arraycopy(board, 0, boards, id * cells, cells);
+        hashes[id] = hash(board);
+        g[id] = (short) gValue;
+        h[id] = (short) hValue;
+        parents[id] = parent;
+
+        insert(hashes[id], id);
+
+        return id;
+    }
+
+    /*
+     * Re-opens a node that has been reached again for a cheaper g
+     */
+    public void update(int id, int gValue, int parent) {
+        g[id] = (short) gValue;
+        parents[id] = parent;
+    }
+
+    /*
+     * Copies the board of a node into a buffer owned by the caller
+     */
+    public void board(int id, byte[] into) {
+        System.arraycopy(boards, id * cells, into, 0, cells);
+    }
+
+    public int g(int id) {
+        return g[id];
+    }
+
+    public int h(int id) {
+        return h[id];
+    }
+
+    public int parent(int id) {
+        return parents[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int cells() {
+        return cells;
+    }
+
+    private boolean matches(int id, byte[] board) {
+        int base = id * cells;
+        for (int i = 0; i < cells; i++) {
+            if (boards[base + i] != board[i]) return false;
+        }
+
+        return true;
+    }
+
+    private void insert(int hash, int id) {
+        int slot = hash & mask;
+        while (index[slot] != 0) slot = (slot + 1) & mask;
+
+        index[slot] = id + 1;
+    }
+
+    private void growNodes() {
+        int most = Integer.MAX_VALUE / cells; //boards is int indexed
+        if (hashes.length >= most) throw new IllegalStateException("No room for more than " + most + " boards of " + cells + " squares");
+
+        int capacity = Math.min(hashes.length + (hashes.length >> 1), most);
+        boards = Arrays.copyOf(boards, capacity * cells);
+        hashes = Arrays.copyOf(hashes, capacity);
+        g = Arrays.copyOf(g, capacity);
+        h = Arrays.copyOf(h, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+    }
+
+    private void growIndex() {
+        index = new int[index.length << 1];
+        mask = index.length - 1;
+
+        for (int id = 0; id < size; id++) insert(hashes[id], id);
+    }
+
+    private static int hash(byte[] board) {
+        int hash = 0;
+        for (byte tile : board) hash = hash * 31 + tile;
+
+        //murmur3 finaliser, the polynomial alone leaves the low bits too regular
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+
+        return hash;
+    }
+}
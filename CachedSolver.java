@@ -0,0 +1,111 @@
+package com.company;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Puts a SolutionCache in front of another solver. Only misses reach the
+ * solver, hits are rebuilt from the cached blank moves. Like every solver it
+ * must only be used by one thread at a time, the cache may be shared.
+ *
+ * Only shortest paths are stored, a solver that isn't optimal is passed
+ * straight through so a rushed answer never stands in for a better one.
+ */
+class CachedSolver implements Solver {
+    private final Solver solver;
+    private final SolutionCache cache;
+    private final SearchStats hit = new SearchStats(); //nothing searched, only the path length
+
+    private SearchStats stats = hit;
+
+    CachedSolver(Solver solver, SolutionCache cache) {
+        this.solver = solver;
+        this.cache = cache;
+    }
+
+    public List<State> solve(State startNode, State endNode) {
+        int[] start = startNode.getState();
+        long key = solver.isOptimal() ? SolutionCache.key(start, endNode.getState()) : -1;
+        if (key == -1) return search(startNode, endNode);
+
+        byte[] moves = cache.get(key);
+        if (moves == null) return miss(key, startNode, endNode);
+
+        List<State> path = SolutionCache.isNoPath(moves) ? null : replay(start, moves);
+        hit(moves);
+
+        return path;
+    }
+
+    /*
+     * A hit goes straight from the cached moves to the move string, no boards
+     */
+    public Solution solution(State startNode, State endNode) {
+        int[] start = startNode.getState();
+        long key = solver.isOptimal() ? SolutionCache.key(start, endNode.getState()) : -1;
+        if (key == -1) {
+            Solution solution = solver.solution(startNode, endNode);
+            stats = solver.getStats();
+            return solution;
+        }
+
+        byte[] moves = cache.get(key);
+        if (moves == null) return Solution.of(miss(key, startNode, endNode));
+
+        hit(moves);
+
+        return SolutionCache.isNoPath(moves) ? null : Solution.of(start, moves);
+    }
+
+    public boolean isOptimal() {
+        return solver.isOptimal();
+    }
+
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    private List<State> miss(long key, State startNode, State endNode) {
+        List<State> path = search(startNode, endNode);
+        cache.put(key, path == null ? null : blankMoves(path));
+
+        return path;
+    }
+
+    private void hit(byte[] moves) {
+        hit.start();
+        hit.finish(SolutionCache.isNoPath(moves) ? -1 : moves.length);
+        stats = hit;
+    }
+
+    private List<State> search(State startNode, State endNode) {
+        List<State> path = solver.solve(startNode, endNode);
+        stats = solver.getStats();
+
+        return path;
+    }
+
+    private static byte[] blankMoves(List<State> path) {
+        byte[] moves = new byte[path.size() - 1];
+        for (int i = 1; i < path.size(); i++) moves[i - 1] = (byte) path.get(i).getBlank();
+
+        return moves;
+    }
+
+    private static List<State> replay(int[] start, byte[] moves) {
+        List<State> path = new ArrayList<>(moves.length + 1);
+        int[] step = start.clone();
+        path.add(new State(step.clone(), 0));
+
+        int blank = 0;
+        while (step[blank] != 0) blank++;
+
+        for (int i = 0; i < moves.length; i++) {
+            Utils.swap(step, blank, moves[i]);
+            blank = moves[i];
+            path.add(new State(step.clone(), i + 1, blank));
+        }
+
+        return path;
+    }
+}
@@ -0,0 +1,421 @@
+package com.company;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/*
+ * Search state of a long solve kept on disk, so a solve cut short by a
+ * restart carries on from there instead of starting over.
+ *
+ * Every so often (-Dcheckpoint.interval ms, default 60000) the search copies
+ * what it needs into a Snapshot between two expansions, which is a few
+ * array copies, and a background thread writes it while the search goes
+ * on. A new snapshot is only taken once the last one is on disk. The file
+ * is written next to the old one and moved over it, so a crash while
+ * writing still leaves the previous checkpoint. After a failed write there
+ * are no more checkpoints for that solve.
+ *
+ * AStarSearch saves its node table and which nodes are open. Its snapshot
+ * only has what changed since the last one: the nodes added since, the
+ * nodes expanded or re-opened since and the new g and parent of the
+ * re-opened ones. The writer merges that into the nodes of the last file
+ * as it copies them and keeps an open bit for every node, so the search
+ * never copies the whole table. IDAStarSearch saves its
+ * threshold, the smallest f over it so far and the path it is on. When a
+ * solver with a checkpoint is asked for the same start, goal and heuristic
+ * as the file holds it picks up from there, ResumeSolver does that from
+ * the file alone. Only the header is read to find out, the tables are
+ * only read back for a match. The file is removed once the solve is done,
+ * but only by a solve that resumed from it or wrote it.
+ *
+ * -Dcheckpoint.file turns it on for every AStarSearch and IDAStarSearch,
+ * one solve at a time: while one solve has the file another one running at
+ * the same time goes without. -Dcheckpoint.dir gives every puzzle a file of
+ * its own in that directory instead, for batches.
+ */
+final class Checkpoint {
+    static final byte ASTAR = 1;
+    static final byte IDASTAR = 2;
+
+    private static final int MAGIC = 0x50434B32; //"PCK2"
+
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "checkpoint-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Set<Path> IN_USE = ConcurrentHashMap.newKeySet(); //files a solve has right now
+
+    private final Path location; //the file, or the directory of one file per puzzle
+    private final boolean perPuzzle;
+    private final long intervalNanos;
+    private long last = System.nanoTime();
+    private Future<?> pending;
+
+    private Path file; //of the solve going on, null when there is none or another solve has it
+    private boolean owned; //the solve going on resumed from file or wrote it
+    private volatile boolean failed; //a write went wrong, the next A* snapshot can't be merged
+    private long[] openNodes = new long[0]; //bit per A* node in the file, kept up by the writer
+
+    /**
+     * @param file           where the search state is kept
+     * @param intervalMillis time between two checkpoints
+     */
+    Checkpoint(Path file, long intervalMillis) {
+        this(file, intervalMillis, false);
+    }
+
+    /**
+     * @param location       file the search state is kept in, or a directory of them
+     * @param intervalMillis time between two checkpoints
+     * @param perPuzzle      location is a directory with a file per start, goal and heuristic
+     */
+    Checkpoint(Path location, long intervalMillis, boolean perPuzzle) {
+        this.location = location;
+        this.perPuzzle = perPuzzle;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    /*
+     * From -Dcheckpoint.dir or -Dcheckpoint.file and -Dcheckpoint.interval, null when not set
+     */
+    static Checkpoint configured() {
+        long interval = Long.getLong("checkpoint.interval", 60000);
+        String dir = System.getProperty("checkpoint.dir");
+        if (dir != null) return new Checkpoint(Paths.get(dir), interval, true);
+
+        String name = System.getProperty("checkpoint.file");
+        return name == null ? null : new Checkpoint(Paths.get(name), interval);
+    }
+
+    /*
+     * True when the last checkpoint is older than the interval and on disk
+     */
+    public boolean due() {
+        return held() && (pending == null || pending.isDone()) && System.nanoTime() - last >= intervalNanos;
+    }
+
+    /*
+     * True when the solve going on has the file and can save to it
+     */
+    public boolean held() {
+        return file != null && !failed;
+    }
+
+    /*
+     * Waits for the checkpoint being written, true when the next one can be saved
+     */
+    public boolean flush() {
+        await();
+        return held();
+    }
+
+    /*
+     * Writes snapshot in the background, the search must not touch it afterwards
+     */
+    public void save(Snapshot snapshot) {
+        if (file == null) return;
+
+        Path file = this.file;
+        owned = true;
+        last = System.nanoTime();
+        pending = WRITER.submit(() -> {
+            try {
+                write(file, snapshot);
+            } catch (IOException e) {
+                failed = true;
+                System.err.println("Could not write checkpoint " + file + ", no more for this solve: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Takes the file for the solve of start to goal, the first call of a solve does that
+     *
+     * @return the saved state of this solve, or null when the file holds another one or none
+     */
+    public Snapshot find(int[] start, int[] goal, Heuristic heuristic) {
+        Path wanted = perPuzzle ? location.resolve(name(start, goal, heuristic)) : location;
+        if (!wanted.equals(file)) {
+            release(); //a solve that never got to clear()
+            if (!IN_USE.add(wanted.toAbsolutePath())) return null; //another solve has it, this one goes without
+            file = wanted;
+        }
+        await(); //a search that fell back to IDA* may still be writing its last one
+        if (!Files.exists(file)) return null;
+
+        try (DataInputStream in = open(file)) {
+            Snapshot snapshot = readHeader(in);
+            boolean same = Arrays.equals(snapshot.start, start) && Arrays.equals(snapshot.goal, goal)
+                    && snapshot.heuristic.equals(String.valueOf(heuristic));
+            if (!same) return null; //someone else's, left alone
+
+            readBody(in, snapshot);
+            owned = true;
+            if (snapshot.kind == ASTAR) { //the next snapshot is merged into this one
+                openNodes = new long[(snapshot.nodes.size() >> 6) + 1];
+                for (int i = 2; i < snapshot.open.length; i += 3) setOpen(snapshot.open[i], true);
+            }
+            return snapshot;
+        } catch (IOException e) {
+            System.err.println("Ignoring checkpoint " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /*
+     * The solve is over, waits for a write still going and removes the file if it was this solve's
+     */
+    public void clear() {
+        if (file == null) return;
+
+        try {
+            if (pending != null) pending.get();
+            if (owned) Files.deleteIfExists(file);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | IOException e) {
+            System.err.println("Could not remove checkpoint " + file + ": " + e.getMessage());
+        }
+        release();
+    }
+
+    private void release() {
+        if (file == null) return;
+
+        await(); //the next solve may want the file
+        IN_USE.remove(file.toAbsolutePath());
+        file = null;
+        owned = false;
+        failed = false;
+        pending = null;
+        openNodes = new long[0];
+    }
+
+    private void await() {
+        try {
+            if (pending != null) pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ignored) { //already reported by the writer
+        }
+    }
+
+    /*
+     * File of one puzzle in a checkpoint directory
+     */
+    private static String name(int[] start, int[] goal, Heuristic heuristic) {
+        long hash = String.valueOf(heuristic).hashCode();
+        for (int tile : start) hash = hash * 31 + tile;
+        for (int tile : goal) hash = hash * 31 + tile;
+
+        return "checkpoint-" + start.length + "-" + Long.toHexString(hash * 0x9E3779B97F4A7C15L) + ".bin";
+    }
+
+    private void write(Path file, Snapshot s) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, "checkpoint", ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeByte(s.kind);
+            out.writeUTF(s.heuristic);
+            out.writeByte(s.start.length);
+            for (int tile : s.start) out.writeByte(tile);
+            for (int tile : s.goal) out.writeByte(tile);
+
+            SearchStats stats = s.stats;
+            for (long counter : new long[]{stats.expanded, stats.generated, stats.duplicates, stats.peakOpen,
+                    stats.peakClosed, stats.evaluations, stats.heuristicNanos, stats.elapsedNanos}) {
+                out.writeLong(counter);
+            }
+
+            if (s.kind == ASTAR) {
+                writeNodes(out, file, s);
+            } else {
+                out.writeInt(s.threshold);
+                out.writeInt(s.pruned);
+                out.writeInt(s.path.length);
+                out.write(s.path);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /*
+     * The nodes file has with the changes of s merged in, then the ones s adds
+     */
+    private void writeNodes(DataOutputStream out, Path file, Snapshot s) throws IOException {
+        int size = s.from + s.nodes.size();
+        if (openNodes.length << 6 < size) {
+            openNodes = Arrays.copyOf(openNodes, Math.max((size >> 6) + 1, openNodes.length + (openNodes.length >> 1)));
+        }
+        for (int id = s.from; id < size; id++) setOpen(id, true);
+        for (int change : s.changes) setOpen(change < 0 ? ~change : change, change < 0);
+
+        long[] updated = new long[s.updated.length / 3]; //id and where it is in s.updated, sorted by id
+        for (int i = 0; i < updated.length; i++) updated[i] = (long) s.updated[i * 3] << 32 | i * 3;
+        Arrays.sort(updated);
+
+        out.writeInt(size);
+        if (s.from > 0) {
+            try (DataInputStream in = open(file)) {
+                if (readHeader(in).kind != ASTAR || in.readInt() != s.from) throw new IOException("out of step with the search");
+
+                for (int id = 0, next = 0; id < s.from; id++) {
+                    long board = in.readLong();
+                    int g = in.readShort();
+                    int h = in.readShort();
+                    int parent = in.readInt();
+                    in.readBoolean(); //open bits are the writer's
+
+                    for (; next < updated.length && updated[next] >>> 32 == id; next++) {
+                        g = s.updated[(int) updated[next] + 1];
+                        parent = s.updated[(int) updated[next] + 2];
+                    }
+                    writeNode(out, board, g, h, parent, isOpen(id));
+                }
+            }
+        }
+        for (int id = s.from; id < size; id++) {
+            int i = id - s.from;
+            writeNode(out, s.nodes.board(i), s.nodes.g(i), s.nodes.h(i), s.nodes.parent(i), isOpen(id));
+        }
+        out.writeInt(s.current);
+    }
+
+    private static void writeNode(DataOutputStream out, long board, int g, int h, int parent, boolean open) throws IOException {
+        out.writeLong(board);
+        out.writeShort(g);
+        out.writeShort(h);
+        out.writeInt(parent);
+        out.writeBoolean(open);
+    }
+
+    private void setOpen(int id, boolean open) {
+        if (open) openNodes[id >> 6] |= 1L << id;
+        else openNodes[id >> 6] &= ~(1L << id);
+    }
+
+    private boolean isOpen(int id) {
+        return (openNodes[id >> 6] & 1L << id) != 0;
+    }
+
+    static Snapshot read(Path file) throws IOException {
+        try (DataInputStream in = open(file)) {
+            Snapshot s = readHeader(in);
+            readBody(in, s);
+
+            return s;
+        }
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+    }
+
+    /*
+     * Which search, heuristic and boards, and the counters
+     */
+    private static Snapshot readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException("not a checkpoint");
+
+        Snapshot s = new Snapshot(in.readByte(), in.readUTF());
+        if (s.kind != ASTAR && s.kind != IDASTAR) throw new IOException("unknown search " + s.kind);
+
+        int cells = in.readUnsignedByte();
+        s.start = new int[cells];
+        s.goal = new int[cells];
+        for (int i = 0; i < cells; i++) s.start[i] = in.readUnsignedByte();
+        for (int i = 0; i < cells; i++) s.goal[i] = in.readUnsignedByte();
+
+        SearchStats stats = s.stats;
+        stats.expanded = in.readLong();
+        stats.generated = in.readLong();
+        stats.duplicates = in.readLong();
+        stats.peakOpen = in.readLong();
+        stats.peakClosed = in.readLong();
+        stats.evaluations = in.readLong();
+        stats.heuristicNanos = in.readLong();
+        stats.elapsedNanos = in.readLong();
+
+        return s;
+    }
+
+    private static void readBody(DataInputStream in, Snapshot s) throws IOException {
+        if (s.kind == ASTAR) {
+            int size = in.readInt();
+            s.nodes = new NodeTable(size);
+            int[] open = new int[16];
+            int count = 0;
+            for (int id = 0; id < size; id++) {
+                long board = in.readLong();
+                int g = in.readShort();
+                int h = in.readShort();
+                s.nodes.add(board, g, h, in.readInt());
+                if (!in.readBoolean()) continue;
+
+                if (count == open.length) open = Arrays.copyOf(open, count << 1);
+                open[count++] = id;
+            }
+            s.current = in.readInt();
+
+            //pushed back in the order they were added, the one being expanded last so it comes off first
+            s.open = new int[count * 3];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                if (open[i] != s.current) n = entry(s, n, open[i]);
+            }
+            if (n < s.open.length) entry(s, n, s.current);
+        } else {
+            s.threshold = in.readInt();
+            s.pruned = in.readInt();
+            s.path = new byte[in.readInt()];
+            in.readFully(s.path);
+        }
+    }
+
+    private static int entry(Snapshot s, int n, int id) {
+        s.open[n] = s.nodes.g(id) + s.nodes.h(id);
+        s.open[n + 1] = s.nodes.g(id);
+        s.open[n + 2] = id;
+
+        return n + 3;
+    }
+
+    /*
+     * State of one solve at one point, see AStarSearch and IDAStarSearch
+     */
+    static final class Snapshot {
+        final byte kind;
+        final String heuristic; //its toString, the file can't hold the object
+        int[] start;
+        int[] goal;
+        SearchStats stats = new SearchStats();
+
+        //A*
+        NodeTable nodes; //all of them when read, the ones from node from on when saved
+        int[] open; //f, g, id triples of the open nodes, when read
+        int current; //taken off the open list but not expanded yet
+        int from; //nodes the file has already
+        int[] changes; //nodes expanded since the last snapshot in order, ~id for re-opened ones
+        int[] updated; //id, g and parent of nodes below from re-opened since
+
+        //IDA*
+        int threshold;
+        int pruned; //smallest f over the threshold so far
+        byte[] path; //blank square after each move down to the node being expanded
+
+        Snapshot(byte kind, String heuristic) {
+            this.kind = kind;
+            this.heuristic = heuristic;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.company;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+
+/*
+ * Exact number of moves to the goal for every 3 x 3 board.
+ *
+ * A breadth first search backwards from the goal reaches all 181,440 boards
+ * of the right parity. The distances are kept one byte each, indexed by the
+ * rank of the board as a permutation of 0..8 (9! entries, the other parity
+ * stays UNSET), and written to the pdb.dir directory (default ./pdb) so
+ * later runs only memory map the file.
+ *
+ * As a heuristic it is perfect, A* with it never expands a node off the
+ * shortest path, which makes it handy to check the other heuristics and
+ * searches against. TableWalk uses it to solve without any search at all.
+ * Boards the goal can't be reached from get 32, one more than any real
+ * distance, so node tables keeping h in a short and bucketed open lists
+ * still take them.
+ */
+class EightPuzzleTable implements Heuristic {
+    static final int CELLS = 9;
+    static final int SIZE = 362880; //9!
+
+    private static final byte UNSET = (byte) 0xFF;
+    private static final int UNREACHABLE = 32; //one past the longest 3 x 3 solution, fits the short h of the node tables
+    private static final int[] FACTORIAL = {40320, 5040, 720, 120, 24, 6, 2, 1, 1};
+
+    private final Path directory;
+
+    private volatile Table table; //for the last goal used
+
+    EightPuzzleTable() {
+        this.directory = Paths.get(System.getProperty("pdb.dir", "pdb"));
+    }
+
+    public int calculateSum(State currentState, State goalState) {
+        return calculateSum(PackedBoard.pack(currentState.getState()), PackedBoard.pack(goalState.getState()),
+                currentState.getState().length);
+    }
+
+    public int calculateSum(long currentState, long goalState, int cells) {
+        int d = distance(currentState, goalState, cells);
+
+        return d < 0 ? UNREACHABLE : d; //other parity, see Solvability, no path at all so any estimate is admissible
+    }
+
+    /**
+     * @return moves from board to goal, -1 when the goal can't be reached
+     */
+    public int distance(long board, long goal, int cells) {
+        if (cells != CELLS) {
+            throw new IllegalArgumentException("The distance table only covers 3 x 3 boards");
+        }
+
+        Table t = table;
+        if (t == null || t.goal != goal) t = load(goal);
+
+        int d = t.data.get(rank(board)) & 0xFF;
+
+        return d == 0xFF ? -1 : d;
+    }
+
+    /*
+     * Position of the board among all permutations of 0..8 in lexicographic
+     * order, counting for each square the unused tiles smaller than its own
+     */
+    static int rank(long board) {
+        int rank = 0;
+        int used = 0;
+
+        for (int i = 0; i < CELLS; i++) {
+            int tile = PackedBoard.get(board, i);
+            rank += (tile - Integer.bitCount(used & ((1 << tile) - 1))) * FACTORIAL[i];
+            used |= 1 << tile;
+        }
+
+        return rank;
+    }
+
+    private synchronized Table load(long goal) {
+        Table t = table;
+        if (t != null && t.goal == goal) return t;
+
+        Path file = directory.resolve(String.format("perfect-%d-%016x.bin", CELLS, goal));
+
+        ByteBuffer data = map(file);
+        if (data == null) data = build(file, goal);
+
+        t = new Table(goal, data);
+        table = t;
+        return t;
+    }
+
+    private static ByteBuffer map(Path file) {
+        if (!Files.exists(file)) return null;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != SIZE) return null; //damaged, build it again
+
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, SIZE);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private ByteBuffer build(Path file, long goal) {
+        byte[] dist = search(goal);
+
+        try {
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, "perfect", ".tmp");
+
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(dist);
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            ByteBuffer mapped = map(file);
+            if (mapped != null) return mapped;
+        } catch (IOException e) {
+            System.err.println("Could not cache distance table in " + directory + ": " + e.getMessage());
+        }
+
+        return ByteBuffer.wrap(dist);
+    }
+
+    /*
+     * Breadth first search from the goal, the queue holds every board once
+     * so it doubles as the list of layers
+     */
+    private static byte[] search(long goal) {
+        MoveTable moves = MoveTable.forCells(CELLS);
+
+        byte[] dist = new byte[SIZE];
+        Arrays.fill(dist, UNSET);
+
+        long[] queue = new long[SIZE / 2];
+        int head = 0;
+        int tail = 0;
+
+        dist[rank(goal)] = 0;
+        queue[tail++] = goal;
+
+        while (head < tail) {
+            long board = queue[head++];
+            int d = dist[rank(board)] + 1;
+            int blank = PackedBoard.blankIndex(board, CELLS);
+
+            for (int m = 0, n = moves.count(blank); m < n; m++) {
+                long child = PackedBoard.move(board, blank, moves.target(blank, m));
+                int r = rank(child);
+
+                if (dist[r] == UNSET) {
+                    dist[r] = (byte) d;
+                    queue[tail++] = child;
+                }
+            }
+        }
+
+        return dist;
+    }
+
+    public String toString() {
+        return getClass().getSimpleName();
+    }
+
+    private static final class Table {
+        final long goal;
+        final ByteBuffer data;
+
+        Table(long goal, ByteBuffer data) {
+            this.goal = goal;
+            this.data = data;
+        }
+    }
+}
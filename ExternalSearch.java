@@ -0,0 +1,482 @@
+package com.company;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/*
+ * Breadth first search that keeps its layers on disk instead of the heap.
+ *
+ * Every layer (all boards first reached after the same number of moves) is a
+ * file of fixed size records sorted by board. A layer is read from start to
+ * end, the children go into an in memory buffer (-Dexternal.buffer MB,
+ * default 64) which is sorted and written out as a run file each time it
+ * fills up. The runs are then merged into the next layer, dropping repeats
+ * and every board already in the two layers before it, which is all a child
+ * can be a repeat of since every move can be undone. This is delayed
+ * duplicate detection: nothing is looked up while expanding and every file
+ * is only read or written sequentially, through large direct buffers.
+ *
+ * With a heuristic, children with g + h over a threshold are left out and
+ * the search is run again with the smallest f that went over it, the same
+ * as IDAStarSearch (breadth first iterative deepening A*). A null heuristic
+ * gives a plain breadth first search.
+ *
+ * The layers of the last iteration are kept until the goal is found, the
+ * path is then read back by scanning each layer for a neighbour of the
+ * board after it. Files go to a temporary directory under -Dexternal.dir
+ * (default java.io.tmpdir) that is removed once the search is done, so the
+ * size of the search is limited by that disk rather than the heap.
+ */
+class ExternalSearch implements Solver {
+    private static final int IO_BUFFER = 1 << 20; //bytes per open file, a merge has one per run
+
+    private final Heuristic heuristic;
+    private final Path directory;
+    private final long bufferLongs;
+    private SearchStats stats = new SearchStats();
+
+    private final Deque<ByteBuffer> buffers = new ArrayDeque<>(); //direct buffers are slow to allocate, keep them
+    private long[] run; //children waiting to be sorted
+
+    //layout of the boards of the current solve
+    private int cells;
+    private int bits; //per tile
+    private int perWord; //tiles per long
+    private int words; //longs per record
+    private MoveTable moves;
+    private HeuristicTable table;
+    private State goal;
+    private long packedGoal;
+    private long[] goalRecord;
+
+    private Path work;
+    private int runs; //run files written, for their names
+    private int pruned; //smallest f over the threshold
+    private boolean found;
+
+    ExternalSearch(Heuristic heuristic) {
+        this.heuristic = heuristic;
+        this.directory = Paths.get(System.getProperty("external.dir", System.getProperty("java.io.tmpdir")));
+        this.bufferLongs = Long.getLong("external.buffer", 64) << 17; //MB of 8 byte longs
+    }
+
+    /**
+     * @param startNode state to start from
+     * @param endNode   goal state
+     * @return path from start to goal (both included) or null when the goal can't be reached
+     * @throws UncheckedIOException when the layers can't be written
+     */
+    public List<State> solve(State startNode, State endNode) {
+        stats = new SearchStats();
+        stats.start();
+
+        List<State> path;
+        try {
+            path = search(startNode, endNode);
+        } catch (IOException e) {
+            throw new UncheckedIOException("External search failed in " + directory, e);
+        } finally {
+            clean();
+        }
+
+        stats.finish(path == null ? -1 : path.size() - 1);
+        return path;
+    }
+
+    private List<State> search(State startNode, State endNode) throws IOException {
+        if (!Solvability.isSolvable(startNode.getState(), endNode.getState())) return null;
+
+        cells = startNode.getState().length;
+        bits = 32 - Integer.numberOfLeadingZeros(cells - 1);
+        perWord = 64 / bits;
+        words = (cells + perWord - 1) / perWord;
+        moves = MoveTable.forCells(cells);
+        goal = endNode;
+        goalRecord = new long[words];
+        encode(endNode.getState(), goalRecord, 0);
+        if (PackedBoard.fits(cells)) packedGoal = PackedBoard.pack(endNode.getState());
+        table = heuristic instanceof IncrementalHeuristic
+                ? ((IncrementalHeuristic) heuristic).table(endNode) : null;
+
+        long limit = Math.min(bufferLongs, Runtime.getRuntime().maxMemory() / 4 / 8);
+        limit = Math.min(limit, Integer.MAX_VALUE - 8) / words * words;
+        if (run == null || run.length != limit) run = new long[(int) Math.max(limit, words)];
+
+        long[] start = new long[words];
+        encode(startNode.getState(), start, 0);
+
+        work = Files.createTempDirectory(Files.createDirectories(directory), "search");
+        int threshold = heuristic == null ? Integer.MAX_VALUE : estimate(startNode.getState().clone());
+
+        while (true) {
+            List<Path> layers = new ArrayList<>();
+            layers.add(work.resolve("layer-0.bin"));
+            try (Writer out = new Writer(layers.get(0))) {
+                out.write(start, 0);
+            }
+
+            found = compare(start, 0, goalRecord, 0) == 0;
+            pruned = Integer.MAX_VALUE;
+            long total = 1;
+
+            while (!found) {
+                Path next = work.resolve("layer-" + layers.size() + ".bin");
+                long count = expand(layers, next, threshold);
+                if (count == 0) break; //nothing left under this threshold
+
+                layers.add(next);
+                total += count;
+                stats.open(count);
+                stats.closed(total);
+            }
+
+            if (found) return buildPath(layers);
+            if (pruned == Integer.MAX_VALUE) return null;
+
+            threshold = pruned;
+        }
+    }
+
+    /*
+     * Writes the children of the last layer to next, returns how many boards it got
+     */
+    private long expand(List<Path> layers, Path next, int threshold) throws IOException {
+        int depth = layers.size() - 1;
+        int[] board = new int[cells];
+        List<Path> runFiles = new ArrayList<>();
+        int n = 0; //longs in run
+
+        try (Reader in = new Reader(layers.get(depth))) {
+            while (in.valid) {
+                stats.expanded++;
+                decode(in.record, 0, board);
+
+                int blank = 0;
+                while (board[blank] != 0) blank++;
+                int h = heuristic == null ? 0 : estimate(board);
+
+                for (int m = 0, c = moves.count(blank); m < c; m++) {
+                    int to = moves.target(blank, m);
+                    int tile = board[to];
+                    stats.generated++;
+
+                    board[blank] = tile;
+                    board[to] = 0;
+
+                    int childH = heuristic == null ? 0
+                            : table != null ? stats.evaluate(table, h, tile, to, blank) : estimate(board);
+                    int f = depth + 1 + childH;
+
+                    if (f > threshold) {
+                        if (f < pruned) pruned = f;
+                    } else {
+                        encode(board, run, n);
+                        n += words;
+                        if (n == run.length) {
+                            runFiles.add(writeRun(n));
+                            n = 0;
+                        }
+                    }
+
+                    board[to] = tile;
+                    board[blank] = 0;
+                }
+
+                in.advance();
+            }
+        }
+        if (n > 0 || runFiles.isEmpty()) runFiles.add(writeRun(n));
+
+        return merge(runFiles, depth > 0 ? layers.get(depth - 1) : null, layers.get(depth), next);
+    }
+
+    private int estimate(int[] board) {
+        if (table != null) return table.calculateSum(board);
+        if (PackedBoard.fits(cells)) return stats.evaluate(heuristic, PackedBoard.pack(board), packedGoal, cells);
+
+        return stats.evaluate(heuristic, new State(board, 0), goal);
+    }
+
+    /*
+     * Sorts the first n longs of run and writes them without repeats
+     */
+    private Path writeRun(int n) throws IOException {
+        int count = n / words;
+        sort(run, count);
+
+        Path file = work.resolve("run-" + runs++ + ".bin");
+        try (Writer out = new Writer(file)) {
+            for (int i = 0; i < count; i++) {
+                if (i > 0 && compare(run, i - 1, run, i) == 0) {
+                    stats.duplicates++;
+                    continue;
+                }
+                out.write(run, i * words);
+            }
+        }
+
+        return file;
+    }
+
+    /*
+     * Merges the sorted runs into one layer, leaving out the boards of the
+     * two layers before it
+     */
+    private long merge(List<Path> runFiles, Path older, Path current, Path next) throws IOException {
+        PriorityQueue<Reader> queue = new PriorityQueue<>((a, b) -> compare(a.record, 0, b.record, 0));
+        long[] last = new long[words];
+        boolean any = false;
+        long count;
+
+        try (Reader before = older != null ? new Reader(older) : null;
+             Reader same = new Reader(current);
+             Writer out = new Writer(next)) {
+            for (Path file : runFiles) {
+                Reader in = new Reader(file);
+                if (in.valid) queue.add(in);
+                else in.close();
+            }
+
+            while (!queue.isEmpty()) {
+                Reader in = queue.poll();
+                boolean repeat = any && compare(in.record, 0, last, 0) == 0;
+
+                if (!repeat) {
+                    System.arraycopy(in.record, 0, last, 0, words);
+                    any = true;
+                    repeat = (before != null && before.skipTo(last)) || same.skipTo(last);
+                }
+
+                if (repeat) {
+                    stats.duplicates++;
+                } else {
+                    out.write(last, 0);
+                    if (compare(last, 0, goalRecord, 0) == 0) found = true;
+                }
+
+                if (in.advance()) queue.add(in);
+                else in.close();
+            }
+            count = out.count;
+        } finally {
+            for (Reader in : queue) in.close();
+            for (Path file : runFiles) Files.deleteIfExists(file);
+        }
+
+        return count;
+    }
+
+    /*
+     * Walks back from the goal, each layer holds a neighbour of the board after it
+     */
+    private List<State> buildPath(List<Path> layers) throws IOException {
+        int depth = layers.size() - 1;
+        int[][] boards = new int[depth + 1][];
+        boards[depth] = goal.getState().clone();
+        long[] neighbours = new long[4 * words];
+
+        for (int k = depth - 1; k >= 0; k--) {
+            int[] board = boards[k + 1].clone();
+            int blank = 0;
+            while (board[blank] != 0) blank++;
+
+            int c = moves.count(blank);
+            for (int m = 0; m < c; m++) {
+                int to = moves.target(blank, m);
+                board[blank] = board[to];
+                board[to] = 0;
+                encode(board, neighbours, m * words);
+                board[to] = board[blank];
+                board[blank] = 0;
+            }
+
+            try (Reader in = new Reader(layers.get(k))) {
+                while (in.valid && boards[k] == null) {
+                    for (int m = 0; m < c; m++) {
+                        if (compare(in.record, 0, neighbours, m) == 0) {
+                            boards[k] = new int[cells];
+                            decode(in.record, 0, boards[k]);
+                            break;
+                        }
+                    }
+                    in.advance();
+                }
+            }
+            if (boards[k] == null) throw new IllegalStateException("Layer " + k + " has no parent of the path");
+        }
+
+        List<State> path = new ArrayList<>(depth + 1);
+        for (int k = 0; k <= depth; k++) path.add(new State(boards[k], k));
+
+        return path;
+    }
+
+    private void clean() {
+        if (work == null) return;
+
+        try (Stream<Path> files = Files.list(work)) {
+            for (Path file : (Iterable<Path>) files::iterator) Files.deleteIfExists(file);
+            Files.deleteIfExists(work);
+        } catch (IOException e) {
+            System.err.println("Could not remove " + work + ": " + e.getMessage());
+        }
+        work = null;
+    }
+
+    private void encode(int[] board, long[] into, int offset) {
+        Arrays.fill(into, offset, offset + words, 0);
+        for (int i = 0; i < cells; i++) {
+            into[offset + i / perWord] |= ((long) board[i]) << ((i % perWord) * bits);
+        }
+    }
+
+    private void decode(long[] from, int offset, int[] board) {
+        long mask = (1L << bits) - 1;
+        for (int i = 0; i < cells; i++) {
+            board[i] = (int) ((from[offset + i / perWord] >>> ((i % perWord) * bits)) & mask);
+        }
+    }
+
+    /*
+     * Record i of a against record j of b
+     */
+    private int compare(long[] a, int i, long[] b, int j) {
+        int ai = i * words;
+        int bj = j * words;
+        for (int w = 0; w < words; w++) {
+            int byWord = Long.compare(a[ai + w], b[bj + w]);
+            if (byWord != 0) return byWord;
+        }
+
+        return 0;
+    }
+
+    /*
+     * Heap sort of the first count records, multi word records can't use Arrays.sort
+     */
+    private void sort(long[] a, int count) {
+        if (words == 1) {
+            Arrays.sort(a, 0, count);
+            return;
+        }
+
+        for (int i = count / 2 - 1; i >= 0; i--) siftDown(a, i, count);
+        for (int end = count - 1; end > 0; end--) {
+            swap(a, 0, end);
+            siftDown(a, 0, end);
+        }
+    }
+
+    private void siftDown(long[] a, int i, int count) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= count) return;
+            if (child + 1 < count && compare(a, child, a, child + 1) < 0) child++;
+            if (compare(a, i, a, child) >= 0) return;
+
+            swap(a, i, child);
+            i = child;
+        }
+    }
+
+    private void swap(long[] a, int i, int j) {
+        for (int w = 0; w < words; w++) {
+            long t = a[i * words + w];
+            a[i * words + w] = a[j * words + w];
+            a[j * words + w] = t;
+        }
+    }
+
+    private ByteBuffer borrow() {
+        ByteBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(IO_BUFFER);
+    }
+
+    private void release(ByteBuffer buffer) {
+        buffer.clear();
+        buffers.push(buffer);
+    }
+
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    /*
+     * Sorted records of a file, one at a time
+     */
+    private final class Reader implements Closeable {
+        final FileChannel channel;
+        final ByteBuffer buffer = borrow();
+        final long[] record = new long[words];
+        boolean valid;
+
+        Reader(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            buffer.limit(0);
+            advance();
+        }
+
+        boolean advance() throws IOException {
+            if (buffer.remaining() < words * 8) {
+                buffer.compact();
+                while (buffer.hasRemaining() && channel.read(buffer) > 0) ;
+                buffer.flip();
+
+                if (buffer.remaining() < words * 8) return valid = false;
+            }
+
+            for (int w = 0; w < words; w++) record[w] = buffer.getLong();
+            return valid = true;
+        }
+
+        /*
+         * Moves up to the first record not below key, true when it is key
+         */
+        boolean skipTo(long[] key) throws IOException {
+            while (valid && compare(record, 0, key, 0) < 0) advance();
+
+            return valid && compare(record, 0, key, 0) == 0;
+        }
+
+        public void close() throws IOException {
+            channel.close();
+            release(buffer);
+        }
+    }
+
+    private final class Writer implements Closeable {
+        final FileChannel channel;
+        final ByteBuffer buffer = borrow();
+        long count;
+
+        Writer(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void write(long[] records, int offset) throws IOException {
+            if (buffer.remaining() < words * 8) drain();
+
+            for (int w = 0; w < words; w++) buffer.putLong(records[offset + w]);
+            count++;
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        public void close() throws IOException {
+            drain();
+            channel.close();
+            release(buffer);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.company;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Renames the tiles so a goal becomes the canonical goal for its blank
+ * square: the tiles 1, 2, 3 .. in reading order with the blank left where it
+ * is. For the usual goal, blank last, that is 1 2 .. n-1 0.
+ *
+ * Renaming tiles on both boards doesn't change which moves solve a puzzle,
+ * so a search can run on the renamed boards and the path is renamed back
+ * afterwards. Heuristics keep their tables per goal (ManhattanTable, the
+ * pattern database files), so with every query renamed they are built once
+ * per blank square and shared by all goals instead of once per goal.
+ *
+ * The blank can't be renamed, so goals with the blank on different squares
+ * still get different canonical goals.
+ */
+final class GoalRelabeling {
+    private final int[] toCanonical; //tile -> canonical tile
+    private final int[] toGoal; //canonical tile -> tile
+    private final int[] canonicalGoal;
+
+    GoalRelabeling(int[] goal) {
+        int cells = goal.length;
+        toCanonical = new int[cells];
+        toGoal = new int[cells];
+        canonicalGoal = new int[cells];
+
+        int next = 1;
+        for (int i = 0; i < cells; i++) {
+            int tile = goal[i];
+            int label = tile == 0 ? 0 : next++;
+
+            toCanonical[tile] = label;
+            toGoal[label] = tile;
+            canonicalGoal[i] = label;
+        }
+    }
+
+    public int[] canonicalGoal() {
+        return canonicalGoal.clone();
+    }
+
+    /*
+     * True when the goal already is canonical, nothing to rename
+     */
+    public boolean isIdentity() {
+        for (int tile = 0; tile < toCanonical.length; tile++) {
+            if (toCanonical[tile] != tile) return false;
+        }
+
+        return true;
+    }
+
+    public int[] toCanonical(int[] board) {
+        return rename(board, toCanonical);
+    }
+
+    public int[] toGoal(int[] board) {
+        return rename(board, toGoal);
+    }
+
+    /*
+     * A path found between canonical boards, renamed back to the real tiles
+     */
+    public List<State> toGoal(List<State> path) {
+        if (path == null) return null;
+
+        List<State> renamed = new ArrayList<>(path.size());
+        for (State s : path) renamed.add(new State(toGoal(s.getState()), s.getLevel(), s.getBlank()));
+
+        return renamed;
+    }
+
+    private static int[] rename(int[] board, int[] labels) {
+        int[] renamed = new int[board.length];
+        for (int i = 0; i < board.length; i++) renamed[i] = labels[board[i]];
+
+        return renamed;
+    }
+}
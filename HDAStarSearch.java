@@ -0,0 +1,345 @@
+package com.company;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Hash distributed A* (HDA*) for one hard board on many cores.
+ *
+ * Every board belongs to exactly one worker thread, picked by a hash of the
+ * packed board. Each worker has its own BucketQueue open list and NodeTable
+ * closed list and is the only thread that touches them. When a worker
+ * expands a node, children it doesn't own go to the owner's inbox, a lock
+ * free ConcurrentLinkedQueue, carrying g, h and the parent's node ref.
+ *
+ * Reaching the goal only sets an upper bound (the incumbent), the search goes
+ * on until no worker has a node with f below it, so the answer is still the
+ * shortest path. Termination uses one counter: every busy worker and every
+ * message not yet taken out of an inbox adds 1. It is only raised by a busy
+ * worker sending or by a worker that picks up a counted message, so once it
+ * hits 0 it stays there and every worker can stop. An idle worker parks until
+ * a sender or the worker that brings the counter to 0 wakes it.
+ *
+ * A worker that throws stops the others, the solve rethrows what it threw.
+ *
+ * Node refs are id * workers + worker so a path can be rebuilt across the
+ * workers' tables once they have all stopped.
+ *
+ * Like AStarSearch the tables together get a quarter of the heap, split
+ * between the solvers running at the same time. A worker whose table is full
+ * stops them all and the board is handed to IDAStarSearch.
+ */
+class HDAStarSearch implements Solver {
+    private static final int BATCH = 64; //nodes expanded between inbox checks
+    private static final long IDLE_NANOS = 1_000_000; //longest park before an idle worker looks again
+    private static final int NODE_BYTES = 44; //board, g, h, parent, index and open list share of every node
+
+    private final Heuristic heuristic;
+    private final int workers;
+    private final int share; //solvers sharing the heap
+    private SearchStats stats = new SearchStats();
+
+    HDAStarSearch(Heuristic heuristic, int workers) {
+        this(heuristic, workers, 1);
+    }
+
+    /**
+     * @param workers threads searching the one board
+     * @param share   solvers running at the same time, each gets that part of the heap
+     */
+    HDAStarSearch(Heuristic heuristic, int workers, int share) {
+        this.heuristic = heuristic;
+        this.workers = Math.max(1, workers);
+        this.share = Math.max(1, share);
+    }
+
+    public List<State> solve(State startNode, State endNode) {
+        int cells = startNode.getState().length;
+
+        if (!PackedBoard.fits(cells)) { //only packed boards can be hashed across workers
+            AStarSearch search = new AStarSearch(heuristic, 0, share);
+            List<State> path = search.solve(startNode, endNode);
+            stats = search.getStats(); //already reported by that search
+            return path;
+        }
+
+        stats = new SearchStats(); //the last one may be the fallback's
+        stats.start();
+        Search search = new Search(startNode, endNode, cells);
+        List<State> path = search.run();
+        for (Worker w : search.team) stats.add(w.stats);
+        stats.heuristicNanos /= workers; //the workers evaluate side by side, this is the share of the wall time
+
+        if (search.full) { //out of room, start again with a search that needs none
+            IDAStarSearch fallback = new IDAStarSearch(heuristic);
+            fallback.takeOver(stats.snapshot());
+            path = fallback.solve(startNode, endNode);
+            stats = fallback.getStats(); //already reported by that search, with this one's part
+            return path;
+        }
+
+        stats.finish(path == null ? -1 : path.size() - 1);
+
+        return path;
+    }
+
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    /*
+     * State shared by the workers of one solve
+     */
+    private final class Search {
+        final Heuristic heuristic = HDAStarSearch.this.heuristic;
+        final int cells;
+        final MoveTable moves;
+        final long goal;
+        final HeuristicTable table;
+        final Worker[] team = new Worker[workers];
+        final long budget; //nodes per worker
+
+        volatile boolean full; //a worker ran out of room
+        volatile boolean stopped; //full, failed or interrupted, everyone stops
+        volatile Throwable failure; //the first thing a worker threw
+
+        final AtomicInteger incumbent = new AtomicInteger(Integer.MAX_VALUE);
+        final AtomicLong work = new AtomicLong();
+        volatile int goalRef = -1;
+
+        Search(State startNode, State endNode, int cells) {
+            this.cells = cells;
+            this.budget = AStarSearch.heapBudget(8 + NODE_BYTES, share, cells) / workers;
+            this.moves = MoveTable.forCells(cells);
+            this.goal = PackedBoard.pack(endNode.getState());
+            this.table = heuristic instanceof IncrementalHeuristic
+                    ? ((IncrementalHeuristic) heuristic).table(endNode) : null;
+
+            for (int w = 0; w < workers; w++) team[w] = new Worker(this, w);
+
+            long start = PackedBoard.pack(startNode.getState());
+            int h = table != null ? table.calculateSum(start) : heuristic.calculateSum(start, goal, cells);
+
+            work.set(workers + 1); //every worker starts busy, plus the start message
+            team[owner(start)].inbox.add(new Message(start, 0, h, -1));
+        }
+
+        List<State> run() {
+            Thread[] threads = new Thread[workers];
+            for (int w = 0; w < workers; w++) {
+                threads[w] = new Thread(team[w], "hda-" + w);
+                team[w].thread = threads[w]; //all set before any start, so every worker sees them
+            }
+            for (Thread t : threads) t.start();
+
+            try {
+                for (Thread t : threads) t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stop();
+                return null;
+            }
+
+            Throwable e = failure;
+            if (e instanceof RuntimeException) throw (RuntimeException) e;
+            if (e instanceof Error) throw (Error) e;
+            if (e != null) throw new IllegalStateException(e);
+
+            if (goalRef < 0 || full) return null;
+
+            LinkedList<State> path = new LinkedList<>();
+            for (int ref = goalRef; ref >= 0; ) {
+                NodeTable closed = team[ref % workers].closed;
+                int id = ref / workers;
+
+                path.addFirst(new State(PackedBoard.unpack(closed.board(id), cells), closed.g(id)));
+                ref = closed.parent(id);
+            }
+
+            return path;
+        }
+
+        int owner(long board) {
+            //top bits of a multiplicative hash, NodeTable indexes on a different hash
+            long hash = (board * 0x9E3779B97F4A7C15L) >>> 32;
+
+            return (int) ((hash * workers) >>> 32);
+        }
+
+        void stop() {
+            stopped = true;
+            wakeAll();
+        }
+
+        synchronized void fail(Throwable e) {
+            if (failure == null) failure = e;
+            stop();
+        }
+
+        void wakeAll() {
+            for (Worker w : team) LockSupport.unpark(w.thread);
+        }
+
+        synchronized void found(int g, int ref) {
+            if (g < incumbent.get()) { //ref first, the incumbent is what workers watch
+                goalRef = ref;
+                incumbent.set(g);
+            }
+        }
+    }
+
+    private static final class Worker implements Runnable {
+        final Search search;
+        final int index;
+        final ConcurrentLinkedQueue<Message> inbox = new ConcurrentLinkedQueue<>();
+        final BucketQueue open = new BucketQueue();
+        final NodeTable closed = new NodeTable(1 << 10);
+        final long[] children = new long[4];
+        final int[] childBlanks = new int[4];
+        final SearchStats stats = new SearchStats(); //this worker's share, summed when they all stop
+        Thread thread;
+        volatile boolean parked; //waiting for a message, senders have to wake it
+
+        Worker(Search search, int index) {
+            this.search = search;
+            this.index = index;
+        }
+
+        public void run() {
+            try {
+                search();
+            } catch (Throwable e) { //its work would never be counted off, the others would wait forever
+                search.fail(e);
+            }
+        }
+
+        private void search() {
+            AtomicLong work = search.work;
+
+            while (true) {
+                if (search.stopped) return;
+
+                Message m;
+                while ((m = inbox.poll()) != null) {
+                    receive(m.board, m.g, m.h, m.parent);
+                    work.decrementAndGet();
+                }
+
+                if (hasWork()) {
+                    for (int i = 0; i < BATCH && hasWork(); i++) expand();
+                    if (closed.size() >= search.budget) {
+                        search.full = true;
+                        search.stop();
+                    }
+                    continue;
+                }
+
+                //idle: nothing under the incumbent left here
+                if (work.decrementAndGet() == 0) {
+                    search.wakeAll(); //the parked ones are done too
+                    return;
+                }
+
+                parked = true; //before the last look at the inbox, a sender that adds after it sees this
+                try {
+                    while (inbox.isEmpty()) {
+                        if (work.get() == 0 || search.stopped) return;
+                        LockSupport.parkNanos(this, IDLE_NANOS);
+                    }
+                } finally {
+                    parked = false;
+                }
+                work.incrementAndGet(); //busy again before taking the counted message
+            }
+        }
+
+        private boolean hasWork() {
+            while (!open.isEmpty()) {
+                int f = open.peekF();
+                int id = open.peek();
+
+                if (f != closed.g(id) + closed.h(id)) { //stale, re-opened for less
+                    open.poll();
+                    continue;
+                }
+
+                return f < search.incumbent.get();
+            }
+
+            return false;
+        }
+
+        private void expand() {
+            int id = open.poll();
+            long board = closed.board(id);
+            int g = closed.g(id) + 1;
+            int h = closed.h(id);
+            int ref = id * search.team.length + index;
+            stats.expanded++;
+            int blank = PackedBoard.blankIndex(board, search.cells);
+
+            int n = search.moves.expand(board, blank, children, childBlanks);
+            stats.generated += n;
+            for (int k = 0; k < n; k++) send(board, blank, children[k], childBlanks[k], g, h, ref);
+
+            stats.open(open.size());
+            stats.closed(closed.size());
+        }
+
+        private void send(long board, int blank, long next, int index, int g, int parentH, int parentRef) {
+            HeuristicTable table = search.table;
+
+            int h = table != null
+                    ? stats.evaluate(table, parentH, PackedBoard.get(board, index), index, blank)
+                    : stats.evaluate(search.heuristic, next, search.goal, search.cells);
+
+            if (g + h >= search.incumbent.get()) return; //can't beat the path we have
+
+            int owner = search.owner(next);
+            if (owner == this.index) {
+                receive(next, g, h, parentRef);
+            } else {
+                Worker to = search.team[owner];
+                search.work.incrementAndGet(); //counted before the owner can see it
+                to.inbox.add(new Message(next, g, h, parentRef));
+                if (to.parked) LockSupport.unpark(to.thread);
+            }
+        }
+
+        private void receive(long board, int g, int h, int parent) {
+            int id = closed.find(board);
+            if (id < 0) {
+                id = closed.add(board, g, h, parent);
+            } else if (closed.g(id) > g) {
+                closed.update(id, g, parent); //re-open with the cheaper g
+            } else {
+                stats.duplicates++;
+                return;
+            }
+
+            if (board == search.goal) {
+                search.found(g, id * search.team.length + index);
+                return; //nothing to gain from expanding the goal
+            }
+
+            open.add(g + h, g, id);
+        }
+    }
+
+    private static final class Message {
+        final long board;
+        final int g;
+        final int h;
+        final int parent;
+
+        Message(long board, int g, int h, int parent) {
+            this.board = board;
+            this.g = g;
+            this.h = h;
+            this.parent = parent;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.company;
+
+import java.util.*;
+
+/*
+ * Iterative deepening A*.
+ *
+ * A depth first search that gives up on a branch as soon as g + h goes over
+ * a threshold. If the goal isn't found the threshold is raised to the
+ * smallest f that went over it and the search starts again. There is no open
+ * or closed list, the board is changed in place with Utils.swap and swapped
+ * back on the way out, so memory only grows with the depth of the solution.
+ * Moving the blank straight back to where it came from is never tried.
+ *
+ * Slower than AStarSearch on easy boards because it re-expands the top of
+ * the tree every iteration, but it can't run out of heap on hard ones.
+ *
+ * Hard boards can take hours, so with a Checkpoint the threshold and the
+ * path down to the node being expanded are saved every so often. A resumed
+ * search follows that path again, skipping every move before it on each
+ * level since those subtrees were already searched under this threshold.
+ */
+class IDAStarSearch implements Solver {
+    private final Heuristic heuristic;
+    private Checkpoint checkpoint = Checkpoint.configured();
+
+    private int[] start;
+    private int[] board;
+    private MoveTable moves;
+    private State current; //wraps board so the heuristic sees every move
+    private HeuristicTable table; //set when the heuristic can be updated per move
+    private State goal;
+    private boolean packed; //small boards are also kept packed for the heuristic
+    private long packedBoard;
+    private long packedGoal;
+    private int[] path; //blank position after each move
+    private int depth; //length of the solution once found
+    private int threshold;
+    private int pruned; //smallest f over the threshold in this iteration
+    private byte[] resume; //path of a checkpoint still being followed back down
+    private final SearchStats stats = new SearchStats();
+    private SearchStats earlier; //counters the next solve goes on from
+
+    IDAStarSearch(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    /*
+     * Saves the search to checkpoint every so often and resumes from it, null turns that off
+     */
+    void setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /*
+     * Counts the next solve on from the counters and time of a search that
+     * gave up on the same board, so the stats cover both
+     */
+    void takeOver(SearchStats earlier) {
+        this.earlier = earlier;
+    }
+
+    public List<State> solve(State startNode, State endNode) {
+        Checkpoint.Snapshot saved = checkpoint != null
+                ? checkpoint.find(startNode.getState(), endNode.getState(), heuristic) : null;
+        if (saved != null && saved.kind != Checkpoint.IDASTAR) saved = null;
+
+        if (saved != null) stats.resume(saved.stats); //has the earlier search's part already
+        else if (earlier != null) stats.resume(earlier);
+        else stats.start();
+        earlier = null;
+
+        List<State> path = deepen(startNode, endNode, saved);
+        stats.finish(path == null ? -1 : path.size() - 1);
+        if (checkpoint != null) checkpoint.clear();
+
+        return path;
+    }
+
+    private List<State> deepen(State startNode, State endNode, Checkpoint.Snapshot saved) {
+        //the threshold would go up forever, there is nothing to find
+        if (!Solvability.isSolvable(startNode.getState(), endNode.getState())) return null;
+
+        start = startNode.getState().clone();
+        board = start.clone();
+        moves = MoveTable.forCells(board.length);
+        current = new State(board, 0);
+        goal = endNode;
+        if (path == null) path = new int[64]; //reused by the next solve
+
+        packed = PackedBoard.fits(board.length);
+        if (packed) {
+            packedBoard = PackedBoard.pack(board);
+            packedGoal = PackedBoard.pack(endNode.getState());
+        }
+
+        int blank = 0;
+        while (board[blank] != 0) blank++;
+
+        table = heuristic instanceof IncrementalHeuristic
+                ? ((IncrementalHeuristic) heuristic).table(endNode) : null;
+
+        int startH = table != null ? table.calculateSum(board) : estimate();
+        threshold = startH;
+        pruned = Integer.MAX_VALUE;
+        resume = null;
+
+        if (saved != null) {
+            threshold = saved.threshold;
+            pruned = saved.pruned;
+            resume = saved.path;
+        }
+
+        while (true) {
+            if (search(blank, -1, 0, startH)) return buildPath(startNode);
+            if (pruned == Integer.MAX_VALUE) return null; //nothing left under any threshold
+
+            threshold = pruned;
+            pruned = Integer.MAX_VALUE;
+        }
+    }
+
+    /*
+     * True when the goal is below this node, pruned keeps the smallest f over the threshold
+     */
+    private boolean search(int blank, int previous, int g, int h) {
+        int f = g + h;
+
+        if (f > threshold) {
+            if (f < pruned) pruned = f;
+            return false;
+        }
+        if (h == 0 && Arrays.equals(board, goal.getState())) {
+            depth = g;
+            return true;
+        }
+
+        if (g == path.length) path = Arrays.copyOf(path, g << 1);
+        stats.expanded++;
+        stats.open(g + 1); //the frontier of a depth first search is its current path
+
+        int first = 0;
+        if (resume != null && g < resume.length) {
+            while (moves.target(blank, first) != resume[g]) first++; //the moves before it are done
+        } else {
+            resume = null; //back at the node the checkpoint was taken at
+            if (checkpoint != null && (stats.expanded & 0xFFF) == 0 && checkpoint.due()) save(g);
+        }
+
+        for (int k = first, n = moves.count(blank); k < n; k++) {
+            if (expand(blank, moves.target(blank, k), previous, g, h)) return true;
+        }
+
+        return false;
+    }
+
+    private void save(int g) {
+        Checkpoint.Snapshot snapshot = new Checkpoint.Snapshot(Checkpoint.IDASTAR, String.valueOf(heuristic));
+        snapshot.start = start; //never changed, board is the one moved around
+        snapshot.goal = goal.getState().clone();
+        snapshot.stats = stats.snapshot();
+        snapshot.threshold = threshold;
+        snapshot.pruned = pruned;
+        snapshot.path = new byte[g];
+        for (int i = 0; i < g; i++) snapshot.path[i] = (byte) path[i];
+
+        checkpoint.save(snapshot);
+    }
+
+    private boolean expand(int blank, int next, int previous, int g, int h) {
+        if (next == previous) return false; //would undo the last move
+        stats.generated++;
+
+        long before = packedBoard;
+        if (packed) packedBoard = PackedBoard.move(packedBoard, blank, next);
+        Utils.swap(board, blank, next);
+        path[g] = next;
+
+        int childH = table != null ? stats.evaluate(table, h, board[blank], next, blank) : estimate();
+
+        if (search(next, blank, g + 1, childH)) return true; //leave the board solved
+
+        Utils.swap(board, blank, next);
+        packedBoard = before;
+
+        return false;
+    }
+
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    private int estimate() {
+        return packed ? stats.evaluate(heuristic, packedBoard, packedGoal, board.length) : stats.evaluate(heuristic, current, goal);
+    }
+
+    private List<State> buildPath(State startNode) {
+        List<State> states = new ArrayList<>(depth + 1);
+        int[] step = startNode.getState().clone();
+        states.add(new State(step.clone(), 0));
+
+        int blank = 0;
+        while (step[blank] != 0) blank++;
+
+        for (int i = 0; i < depth; i++) {
+            Utils.swap(step, blank, path[i]);
+            blank = path[i];
+            states.add(new State(step.clone(), i + 1));
+        }
+
+        return states;
+    }
+}
@@ -0,0 +1,33 @@
+package com.company;
+
+/*
+ * Heuristic that can work out a child's h from its parent's h.
+ *
+ * A move only changes the position of one tile, so instead of rescanning the
+ * whole board the search asks the goal's HeuristicTable how much that one
+ * tile changed the estimate.
+ */
+interface IncrementalHeuristic extends Heuristic {
+    /**
+     * Builds the lookup data for one goal state. Tables never change once
+     * built so every search against the same goal can share one
+     *
+     * @param goalState goal the estimates are measured against
+     * @return table for goalState
+     */
+    HeuristicTable table(State goalState);
+}
+
+interface HeuristicTable {
+    int calculateSum(int[] board);
+
+    int calculateSum(long board);
+
+    /**
+     * @param tile tile that moved
+     * @param from index it moved from
+     * @param to   index it moved to (where the blank was)
+     * @return change in h caused by the move
+     */
+    int calculateDelta(int tile, int from, int to);
+}
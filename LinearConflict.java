@@ -0,0 +1,170 @@
+package com.company;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * Manhattan distance plus linear conflicts.
+ *
+ * Two tiles are in linear conflict when they are both in their goal row (or
+ * column) but in the wrong order, one of them has to step out of the line and
+ * back in, which Manhattan distance doesn't count. For every line we take out
+ * the tile with the most conflicts until none are left and add 2 moves per
+ * tile taken out. Adding 2 for every conflicting pair would over estimate
+ * when three tiles are all reversed (3 2 1 needs 4 extra moves, not 6).
+ *
+ * A line is read into an int key, a leading 1 followed by the goal column
+ * (or row) of every tile in its goal line, so an evaluation allocates
+ * nothing. The tiles to take out for every possible key of a board width
+ * are worked out once, on first use of that width.
+ */
+class LinearConflict implements Heuristic {
+    private static final AtomicReferenceArray<byte[]> LINES = new AtomicReferenceArray<>(MoveTable.MAX_WIDTH + 1); //by width
+
+    private volatile ManhattanTable table; //for the last goal used
+
+    public int calculateSum(State currentState, State goalState) {
+        int[] board = currentState.getState();
+        ManhattanTable t = table(goalState.getState());
+
+        int sqrt = (int) Math.sqrt(board.length);
+        int bits = bits(sqrt);
+        byte[] lines = lines(sqrt);
+
+        int hSum = t.calculateSum(board);
+        for (int r = 0; r < sqrt; r++) {
+            int key = 1;
+            for (int c = 0; c < sqrt; c++) {
+                int tile = board[r * sqrt + c];
+                if (tile != 0 && t.goalRow(tile) == r) key = key << bits | t.goalColumn(tile);
+            }
+            hSum += 2 * lines[key];
+        }
+
+        for (int c = 0; c < sqrt; c++) {
+            int key = 1;
+            for (int r = 0; r < sqrt; r++) {
+                int tile = board[r * sqrt + c];
+                if (tile != 0 && t.goalColumn(tile) == c) key = key << bits | t.goalRow(tile);
+            }
+            hSum += 2 * lines[key];
+        }
+
+        return hSum;
+    }
+
+    public int calculateSum(long currentState, long goalState, int cells) {
+        ManhattanTable t = table(goalState, cells);
+
+        int sqrt = (int) Math.sqrt(cells);
+        int bits = bits(sqrt);
+        byte[] lines = lines(sqrt);
+
+        int hSum = t.calculateSum(currentState);
+        for (int r = 0; r < sqrt; r++) {
+            int key = 1;
+            for (int c = 0; c < sqrt; c++) {
+                int tile = PackedBoard.get(currentState, r * sqrt + c);
+                if (tile != 0 && t.goalRow(tile) == r) key = key << bits | t.goalColumn(tile);
+            }
+            hSum += 2 * lines[key];
+        }
+
+        for (int c = 0; c < sqrt; c++) {
+            int key = 1;
+            for (int r = 0; r < sqrt; r++) {
+                int tile = PackedBoard.get(currentState, r * sqrt + c);
+                if (tile != 0 && t.goalColumn(tile) == c) key = key << bits | t.goalRow(tile);
+            }
+            hSum += 2 * lines[key];
+        }
+
+        return hSum;
+    }
+
+    /*
+     * Bits per tile in a line key
+     */
+    private static int bits(int width) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(width - 1));
+    }
+
+    /*
+     * Tiles to take out by line key for one board width
+     */
+    private static byte[] lines(int width) {
+        byte[] lines = LINES.get(width);
+        if (lines != null) return lines;
+
+        int bits = bits(width);
+        lines = new byte[1 << (width * bits + 1)];
+        int[] line = new int[width];
+
+        for (int key = 1; key < lines.length; key++) {
+            int top = 31 - Integer.numberOfLeadingZeros(key); //the leading 1
+            if (top % bits != 0) continue;
+
+            int n = top / bits;
+            boolean valid = true;
+            for (int i = 0; i < n; i++) {
+                line[i] = (key >>> ((n - 1 - i) * bits)) & ((1 << bits) - 1);
+                if (line[i] >= width) valid = false;
+            }
+            if (valid) lines[key] = (byte) conflicts(line, n);
+        }
+
+        LINES.compareAndSet(width, null, lines);
+        return LINES.get(width);
+    }
+
+    /*
+     * line holds the goal column (or row) of the tiles already in their goal
+     * line, in the order they sit. Returns how many have to leave the line
+     */
+    private static int conflicts(int[] line, int n) {
+        int removed = 0;
+        int gone = 0; //bit per removed tile
+
+        while (true) {
+            int worst = -1;
+            int most = 0;
+
+            for (int i = 0; i < n; i++) {
+                if ((gone & (1 << i)) != 0) continue;
+
+                int count = 0;
+                for (int j = 0; j < n; j++) {
+                    if (j == i || (gone & (1 << j)) != 0) continue;
+                    if ((j > i && line[i] > line[j]) || (j < i && line[j] > line[i])) count++;
+                }
+
+                if (count > most) {
+                    most = count;
+                    worst = i;
+                }
+            }
+
+            if (worst < 0) return removed;
+
+            gone |= 1 << worst;
+            removed++;
+        }
+    }
+
+    private ManhattanTable table(int[] goalState) {
+        ManhattanTable t = table;
+        if (t == null || !t.isFor(goalState)) table = t = new ManhattanTable(goalState);
+
+        return t;
+    }
+
+    private ManhattanTable table(long goalState, int cells) {
+        ManhattanTable t = table;
+        if (t == null || !t.isFor(goalState, cells)) table = t = new ManhattanTable(PackedBoard.unpack(goalState, cells));
+
+        return t;
+    }
+
+    public String toString() {
+        return getClass().getSimpleName();
+    }
+}
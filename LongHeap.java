@@ -0,0 +1,73 @@
+package com.company;
+
+import java.util.Arrays;
+
+/*
+ * Binary min heap of primitive longs. The search packs the sort key in the
+ * high bits and a NodeTable id in the low 32 so the open list needs no
+ * objects either.
+ */
+final class LongHeap {
+    private long[] heap;
+    private int size;
+
+    LongHeap(int capacity) {
+        heap = new long[Math.max(16, capacity)];
+    }
+
+    public void add(long value) {
+        if (size == heap.length) heap = Arrays.copyOf(heap, size << 1);
+
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= value) break;
+
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    public long peek() {
+        return heap[0];
+    }
+
+    public long poll() {
+        long top = heap[0];
+        long last = heap[--size];
+
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = (i << 1) + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (last <= heap[child]) break;
+
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+
+        return top;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Entry i in heap order, only the first is the smallest
+     */
+    public long get(int i) {
+        return heap[i];
+    }
+}
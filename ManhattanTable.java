@@ -0,0 +1,96 @@
+package com.company;
+
+import java.util.Arrays;
+
+/*
+ * Manhattan distance lookup for one goal state.
+ *
+ * distance[tile * cells + index] is how far the tile is from its goal
+ * position when it sits at index, worked out once when the table is built.
+ * A full evaluation is then one lookup per cell and the change for a move
+ * is two lookups.
+ */
+final class ManhattanTable implements HeuristicTable {
+    private final int cells;
+    private final int[] goal;
+    private final long packedGoal; //0 when the board is too big to pack
+    private final int[] goalIndex; //tile -> index in goal state
+    private final int[] goalRow; //tile -> row in goal state
+    private final int[] goalColumn; //tile -> column in goal state
+    private final byte[] distance;
+
+    ManhattanTable(int[] goalState) {
+        cells = goalState.length;
+        goal = goalState.clone();
+        packedGoal = PackedBoard.fits(cells) ? PackedBoard.pack(goalState) : 0;
+        MoveTable moves = MoveTable.forCells(cells);
+
+        int width = (int) Math.sqrt(cells);
+        goalIndex = new int[cells];
+        goalRow = new int[cells];
+        goalColumn = new int[cells];
+        for (int i = 0; i < cells; i++) {
+            goalIndex[goalState[i]] = i;
+            goalRow[goalState[i]] = i / width;
+            goalColumn[goalState[i]] = i % width;
+        }
+
+        distance = new byte[cells * cells];
+        for (int tile = 1; tile < cells; tile++) { //blank stays 0
+            int j = goalIndex[tile];
+
+            for (int i = 0; i < cells; i++) {
+                distance[tile * cells + i] = (byte) moves.distance(i, j);
+            }
+        }
+    }
+
+    /*
+     * True when this table was built for the goal state
+     */
+    public boolean isFor(int[] goalState) {
+        return Arrays.equals(goal, goalState);
+    }
+
+    public boolean isFor(long goalState, int cells) {
+        return packedGoal != 0 && packedGoal == goalState && cells == this.cells;
+    }
+
+    public int goalIndex(int tile) {
+        return goalIndex[tile];
+    }
+
+    public int goalRow(int tile) {
+        return goalRow[tile];
+    }
+
+    public int goalColumn(int tile) {
+        return goalColumn[tile];
+    }
+
+    public int distance(int tile, int index) {
+        return distance[tile * cells + index];
+    }
+
+    public int calculateSum(int[] board) {
+        int hSum = 0;
+
+        for (int i = 0; i < cells; i++) hSum += distance[board[i] * cells + i];
+
+        return hSum;
+    }
+
+    public int calculateSum(long board) {
+        int hSum = 0;
+
+        for (int i = 0; i < cells; i++) hSum += distance[PackedBoard.get(board, i) * cells + i];
+
+        return hSum;
+    }
+
+    public int calculateDelta(int tile, int from, int to) {
+        int row = tile * cells;
+
+        return distance[row + to] - distance[row + from];
+    }
+}
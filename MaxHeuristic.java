@@ -0,0 +1,29 @@
+package com.company;
+
+import java.util.*;
+
+/*
+ * Takes the biggest value of several admissible heuristics, which is still
+ * admissible and at least as good as any one of them. Each heuristic spots
+ * different things (walking distance handles rows as a whole, linear
+ * conflicts catches swapped pairs), so the max beats each on its own.
+ */
+class MaxHeuristic implements Heuristic {
+    private final List<Heuristic> heuristics;
+
+    MaxHeuristic(List<Heuristic> heuristics) {
+        this.heuristics = new ArrayList<>(heuristics);
+    }
+
+    public int calculateSum(State currentState, State goalState) {
+        return Utils.calculateBestMove(heuristics, currentState, goalState);
+    }
+
+    public int calculateSum(long currentState, long goalState, int cells) {
+        return Utils.calculateBestMove(heuristics, currentState, goalState, cells);
+    }
+
+    public String toString() {
+        return getClass().getSimpleName() + heuristics;
+    }
+}
@@ -0,0 +1,112 @@
+package com.company;
+
+/*
+ * Precomputed blank moves for one board width.
+ *
+ * For every blank position the squares it can swap with are worked out once,
+ * in the same north, east, west, south order Utils.getNextStates has always
+ * used, so expanding a node never redoes the edge checks. The distance
+ * between every two squares is kept too, so heuristic tables are built
+ * without divisions. Tables are shared by every search on boards of the same
+ * width.
+ */
+final class MoveTable {
+    static final int MAX_WIDTH = 7;
+
+    private static final MoveTable[] TABLES = new MoveTable[MAX_WIDTH + 1];
+
+    private final int width;
+    private final int cells;
+    private final int[] targets; //blank * 4 + k
+    private final int[] counts;
+    private final byte[] distances; //from * cells + to, rows plus columns between two squares
+
+    private MoveTable(int width) {
+        this.width = width;
+        this.cells = width * width;
+        targets = new int[cells << 2];
+        counts = new int[cells];
+
+        for (int blank = 0; blank < cells; blank++) {
+            int n = 0;
+            int base = blank << 2;
+
+            if (blank >= width) targets[base + n++] = blank - width; //move north
+            if ((blank % width) + 1 < width) targets[base + n++] = blank + 1; //move east
+            if ((blank % width) > 0) targets[base + n++] = blank - 1; //move west
+            if (blank + width < cells) targets[base + n++] = blank + width; //move south
+
+            counts[blank] = n;
+        }
+
+        distances = new byte[cells * cells];
+        for (int from = 0; from < cells; from++) {
+            for (int to = 0; to < cells; to++) {
+                distances[from * cells + to] = (byte) (Math.abs(from / width - to / width) + Math.abs(from % width - to % width));
+            }
+        }
+    }
+
+    public static synchronized MoveTable forWidth(int width) {
+        if (width < 1 || width > MAX_WIDTH) {
+            throw new IllegalArgumentException("Boards have to be between 1 x 1 and " + MAX_WIDTH + " x " + MAX_WIDTH);
+        }
+
+        if (TABLES[width] == null) TABLES[width] = new MoveTable(width);
+
+        return TABLES[width];
+    }
+
+    public static MoveTable forCells(int cells) {
+        return forWidth((int) Math.sqrt(cells));
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int cells() {
+        return cells;
+    }
+
+    /*
+     * Number of squares the blank can move to from here, 2 to 4
+     */
+    public int count(int blank) {
+        return counts[blank];
+    }
+
+    public int target(int blank, int k) {
+        return targets[(blank << 2) + k];
+    }
+
+    /*
+     * Manhattan distance between two squares
+     */
+    public int distance(int from, int to) {
+        return distances[from * cells + to];
+    }
+
+    /**
+     * Writes every child of a packed board into buffers owned by the caller,
+     * nothing is allocated
+     *
+     * @param board  packed board
+     * @param blank  index of its blank
+     * @param boards receives the children, needs room for 4
+     * @param blanks receives the blank index of each child, which is where the moved tile was
+     * @return number of children written
+     */
+    public int expand(long board, int blank, long[] boards, int[] blanks) {
+        int n = counts[blank];
+        int base = blank << 2;
+
+        for (int k = 0; k < n; k++) {
+            int target = targets[base + k];
+            boards[k] = PackedBoard.move(board, blank, target);
+            blanks[k] = target;
+        }
+
+        return n;
+    }
+}
@@ -0,0 +1,157 @@
+package com.company;
+
+import java.util.Arrays;
+
+/*
+ * Closed/visited table for packed boards without any per-node objects.
+ *
+ * Nodes are appended to parallel primitive arrays (board, g, h, parent) and
+ * are referred to by their int id, the parent of a node is the id of the
+ * node it was reached from. Finding a board is done through an open
+ * addressing index of node ids with linear probing, kept at most half full.
+ *
+ * A node costs 8 + 2 + 2 + 4 bytes plus 8 bytes of index, about 24 bytes,
+ * so tens of millions of expanded 15 puzzle boards fit in a few hundred MB.
+ */
+final class NodeTable {
+    static final int NO_PARENT = -1;
+
+    private long[] boards;
+    private short[] g;
+    private short[] h;
+    private int[] parents;
+    private int size;
+
+    private int[] index; //node id + 1, 0 is an empty slot
+    private int mask;
+
+    NodeTable(int expected) {
+        int capacity = Math.max(16, expected);
+        boards = new long[capacity];
+        g = new short[capacity];
+        h = new short[capacity];
+        parents = new int[capacity];
+
+        index = new int[Integer.highestOneBit(capacity - 1) << 2];
+        mask = index.length - 1;
+    }
+
+    private NodeTable(long[] boards, short[] g, short[] h, int[] parents, int size) {
+        this.boards = boards;
+        this.g = g;
+        this.h = h;
+        this.parents = parents;
+        this.size = size;
+    }
+
+    /*
+     * Copy of the nodes added since node from for a Checkpoint, without the
+     * index so only board, g, h and parent work on it. Node from is its
+     * node 0
+     */
+    public NodeTable copy(int from) {
+        return new NodeTable(Arrays.copyOfRange(boards, from, size), Arrays.copyOfRange(g, from, size),
+                Arrays.copyOfRange(h, from, size), Arrays.copyOfRange(parents, from, size), size - from);
+    }
+
+    /*
+     * Empties the table but keeps the arrays so the next search can reuse them
+     */
+    public void clear() {
+        Arrays.fill(index, 0);
+        size = 0;
+    }
+
+    /**
+     * @param board packed board
+     * @return id of the node holding this board or -1 if it was never added
+     */
+    public int find(long board) {
+        for (int slot = hash(board) & mask; ; slot = (slot + 1) & mask) {
+            int id = index[slot] - 1;
+            if (id < 0) return -1;
+            if (boards[id] == board) return id;
+        }
+    }
+
+    /**
+     * Adds a board that is not in the table yet
+     *
+     * @return id of the new node
+     */
+    public int add(long board, int gValue, int hValue, int parent) {
+        if (size == boards.length) growNodes();
+        if ((size + 1) << 1 > index.length) growIndex();
+
+        int id = size++;
+        boards[id] = board;
+        g[id] = (short) gValue;
+        h[id] = (short) hValue;
+        parents[id] = parent;
+
+        insert(board, id);
+
+        return id;
+    }
+
+    /*
+     * Re-opens a node that has been reached again for a cheaper g
+     */
+    public void update(int id, int gValue, int parent) {
+        g[id] = (short) gValue;
+        parents[id] = parent;
+    }
+
+    public long board(int id) {
+        return boards[id];
+    }
+
+    public int g(int id) {
+        return g[id];
+    }
+
+    public int h(int id) {
+        return h[id];
+    }
+
+    public int parent(int id) {
+        return parents[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void insert(long board, int id) {
+        int slot = hash(board) & mask;
+        while (index[slot] != 0) slot = (slot + 1) & mask;
+
+        index[slot] = id + 1;
+    }
+
+    private void growNodes() {
+        int capacity = boards.length + (boards.length >> 1);
+        boards = Arrays.copyOf(boards, capacity);
+        g = Arrays.copyOf(g, capacity);
+        h = Arrays.copyOf(h, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+    }
+
+    private void growIndex() {
+        index = new int[index.length << 1];
+        mask = index.length - 1;
+
+        for (int id = 0; id < size; id++) insert(boards[id], id);
+    }
+
+    private static int hash(long board) {
+        //murmur3 finaliser, nibbles of nearby boards differ in only a few bits
+        board ^= board >>> 33;
+        board *= 0xff51afd7ed558ccdL;
+        board ^= board >>> 33;
+        board *= 0xc4ceb9fe1a85ec53L;
+        board ^= board >>> 33;
+
+        return (int) board;
+    }
+}
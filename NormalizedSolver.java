@@ -0,0 +1,47 @@
+package com.company;
+
+import java.util.List;
+
+/*
+ * Runs another solver against the canonical goal of GoalRelabeling and
+ * renames the path back, so whatever the solver's heuristic builds per goal
+ * is shared by every goal with the blank on the same square.
+ */
+class NormalizedSolver implements Solver {
+    private final Solver solver;
+
+    NormalizedSolver(Solver solver) {
+        this.solver = solver;
+    }
+
+    public List<State> solve(State startNode, State endNode) {
+        GoalRelabeling relabeling = new GoalRelabeling(endNode.getState());
+        if (relabeling.isIdentity()) return solver.solve(startNode, endNode);
+
+        List<State> path = solver.solve(new State(relabeling.toCanonical(startNode.getState()), 0),
+                new State(relabeling.canonicalGoal(), 0));
+
+        return relabeling.toGoal(path);
+    }
+
+    /*
+     * Moves don't depend on the tile names, only the start board is swapped back
+     */
+    public Solution solution(State startNode, State endNode) {
+        GoalRelabeling relabeling = new GoalRelabeling(endNode.getState());
+        if (relabeling.isIdentity()) return solver.solution(startNode, endNode);
+
+        Solution solution = solver.solution(new State(relabeling.toCanonical(startNode.getState()), 0),
+                new State(relabeling.canonicalGoal(), 0));
+
+        return solution == null ? null : solution.from(startNode.getState());
+    }
+
+    public boolean isOptimal() {
+        return solver.isOptimal();
+    }
+
+    public SearchStats getStats() {
+        return solver.getStats();
+    }
+}
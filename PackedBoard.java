@@ -0,0 +1,72 @@
+package com.company;
+
+/*
+ * Compact board encoding for puzzles of up to 16 cells (3 x 3 and 4 x 4).
+ *
+ * Every cell is a 4 bit nibble in one long, cell i lives in bits 4i..4i+3,
+ * so a 15 puzzle board is a single primitive: hashing and equality are one
+ * compare and a move is a couple of shifts and masks instead of cloning an
+ * int[]. State stays the int[] adapter used for input and printing.
+ */
+final class PackedBoard {
+    static final int MAX_CELLS = 16;
+
+    private static final long NIBBLE = 0xFL;
+    private static final long LOW_BITS = 0x1111111111111111L; //lowest bit of every nibble
+
+    private PackedBoard() {
+    }
+
+    public static boolean fits(int cells) {
+        return cells <= MAX_CELLS;
+    }
+
+    public static long pack(int[] tiles) {
+        long board = 0;
+
+        for (int i = 0; i < tiles.length; i++) board |= ((long) tiles[i]) << (i << 2);
+
+        return board;
+    }
+
+    public static int[] unpack(long board, int cells) {
+        int[] tiles = new int[cells];
+
+        for (int i = 0; i < cells; i++) tiles[i] = get(board, i);
+
+        return tiles;
+    }
+
+    public static int get(long board, int index) {
+        return (int) ((board >>> (index << 2)) & NIBBLE);
+    }
+
+    /*
+     * Finds the zero nibble without a loop: or-ing each nibble's bits down
+     * into its lowest bit leaves that bit clear only for the blank
+     */
+    public static int blankIndex(long board, int cells) {
+        long bits = board | (board >>> 1);
+        bits |= bits >>> 2;
+
+        long zero = ~bits & LOW_BITS;
+        if (cells < MAX_CELLS) zero &= (1L << (cells << 2)) - 1;
+
+        return zero == 0 ? -1 : Long.numberOfTrailingZeros(zero) >>> 2;
+    }
+
+    /**
+     * Slides the tile at index into the blank, the blank nibble is zero
+     * so the tile only has to be or-ed in and cleared from where it was
+     *
+     * @param board packed board
+     * @param blank index of the blank
+     * @param index index of the tile to move
+     * @return new packed board
+     */
+    public static long move(long board, int blank, int index) {
+        long tile = (board >>> (index << 2)) & NIBBLE;
+
+        return (board & ~(NIBBLE << (index << 2))) | (tile << (blank << 2));
+    }
+}
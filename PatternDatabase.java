@@ -0,0 +1,298 @@
+package com.company;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+
+/*
+ * Additive disjoint pattern database heuristic for 3 x 3 and 4 x 4 boards.
+ *
+ * The tiles are split into groups (6-6-3 for a 15 puzzle, 4-4 for an 8
+ * puzzle), taken in goal order. For each group a table holds the exact
+ * number of moves of that group's tiles needed to put them in place, with
+ * every other tile treated as blank space the real blank can move through
+ * for free. Only moves of a group's own tiles are counted, so the values of
+ * the groups can be added and the sum still never over estimates.
+ *
+ * A table is built by a breadth first search backwards from the goal over
+ * (group tile positions, blank position). Moving the blank into an empty
+ * square costs nothing and moving it into a group tile costs 1, so each
+ * layer is flooded with the free moves before the next one starts. The
+ * blank is then dropped by keeping the smallest value over all blank
+ * squares. Entries are indexed by the group's tile positions, 4 bits each,
+ * so a lookup never needs ranking.
+ *
+ * Building the 15 puzzle tables takes a while so they are written to the
+ * pdb.dir directory (default ./pdb) and memory mapped on later runs.
+ */
+class PatternDatabase implements Heuristic {
+    static final int MAX_GROUP = 6; //16^7 byte search array while building
+
+    private static final byte UNSET = (byte) 0xFF;
+
+    private final int[] groupSizes; //null picks a split by board size
+    private final Path directory;
+
+    private volatile Tables tables; //for the last goal used
+
+    PatternDatabase() {
+        this(null);
+    }
+
+    PatternDatabase(int... groupSizes) {
+        this.groupSizes = groupSizes;
+        this.directory = Paths.get(System.getProperty("pdb.dir", "pdb"));
+    }
+
+    public int calculateSum(State currentState, State goalState) {
+        int cells = currentState.getState().length;
+
+        return calculateSum(PackedBoard.pack(currentState.getState()), PackedBoard.pack(goalState.getState()), cells);
+    }
+
+    public int calculateSum(long currentState, long goalState, int cells) {
+        Tables t = tables;
+        if (t == null || t.goal != goalState || t.cells != cells) t = load(goalState, cells);
+
+        //positions of every tile in goal order, the groups are consecutive runs of it
+        long positions = 0;
+        for (int i = 0; i < cells; i++) {
+            int tile = PackedBoard.get(currentState, i);
+            if (tile != 0) positions |= ((long) i) << t.shift[tile];
+        }
+
+        int hSum = 0;
+        for (int g = 0; g < t.base.length; g++) {
+            int index = (int) ((positions >>> t.groupShift[g]) & t.groupMask[g]);
+            hSum += t.data.get(t.base[g] + index);
+        }
+
+        return hSum;
+    }
+
+    private synchronized Tables load(long goal, int cells) {
+        Tables t = tables;
+        if (t != null && t.goal == goal && t.cells == cells) return t;
+
+        if (!PackedBoard.fits(cells)) {
+            throw new IllegalArgumentException("Pattern databases need a board of at most "
+                    + PackedBoard.MAX_CELLS + " cells");
+        }
+
+        int[] sizes = groupSizes != null ? groupSizes : (cells == 9 ? new int[]{4, 4} : new int[]{6, 6, 3});
+        int[] order = tilesInGoalOrder(goal, cells);
+
+        int total = 0;
+        for (int size : sizes) {
+            if (size < 1 || size > MAX_GROUP) {
+                throw new IllegalArgumentException("Pattern groups need 1 to " + MAX_GROUP + " tiles");
+            }
+            total += size;
+        }
+        if (total != order.length) {
+            throw new IllegalArgumentException("Pattern groups " + Arrays.toString(sizes)
+                    + " don't cover the " + order.length + " tiles");
+        }
+
+        t = new Tables(goal, cells, sizes, order);
+
+        StringBuilder name = new StringBuilder(String.format("pdb-%d-%016x", cells, goal));
+        for (int size : sizes) name.append('-').append(size);
+        Path file = directory.resolve(name.append(".bin").toString());
+
+        t.data = map(file, totalSize(sizes));
+        if (t.data == null) t.data = build(file, goal, cells, sizes, order);
+
+        tables = t;
+        return t;
+    }
+
+    private static int[] tilesInGoalOrder(long goal, int cells) {
+        int[] order = new int[cells - 1];
+        int n = 0;
+
+        for (int i = 0; i < cells; i++) {
+            int tile = PackedBoard.get(goal, i);
+            if (tile != 0) order[n++] = tile;
+        }
+
+        return order;
+    }
+
+    private static ByteBuffer map(Path file, long expected) {
+        if (!Files.exists(file)) return null;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != expected) return null; //different layout, build it again
+
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, expected);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private ByteBuffer build(Path file, long goal, int cells, int[] sizes, int[] order) {
+        byte[][] groups = new byte[sizes.length][];
+
+        int first = 0;
+        for (int g = 0; g < sizes.length; g++) {
+            groups[g] = buildGroup(goal, cells, Arrays.copyOfRange(order, first, first + sizes[g]));
+            first += sizes[g];
+        }
+
+        try {
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, "pdb", ".tmp");
+
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                for (byte[] group : groups) {
+                    ByteBuffer buffer = ByteBuffer.wrap(group);
+                    while (buffer.hasRemaining()) channel.write(buffer);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            ByteBuffer mapped = map(file, Files.size(file));
+            if (mapped != null) return mapped;
+        } catch (IOException e) {
+            System.err.println("Could not cache pattern database in " + directory + ": " + e.getMessage());
+        }
+
+        ByteBuffer data = ByteBuffer.allocate(totalSize(sizes));
+        for (byte[] group : groups) data.put(group);
+        data.flip();
+
+        return data;
+    }
+
+    private static int totalSize(int[] sizes) {
+        int total = 0;
+        for (int size : sizes) total += 1 << (size << 2);
+
+        return total;
+    }
+
+    /*
+     * Backwards breadth first search for one group. A search key is the
+     * position of each group tile (4 bits each, in group order) with the
+     * blank position above them
+     */
+    private static byte[] buildGroup(long goal, int cells, int[] tiles) {
+        int k = tiles.length;
+        MoveTable moves = MoveTable.forCells(cells);
+        int blankShift = k << 2;
+
+        byte[] dist = new byte[1 << (blankShift + 4)];
+        Arrays.fill(dist, UNSET);
+
+        int start = PackedBoard.blankIndex(goal, cells) << blankShift;
+        for (int j = 0; j < k; j++) {
+            for (int i = 0; i < cells; i++) {
+                if (PackedBoard.get(goal, i) == tiles[j]) start |= i << (j << 2);
+            }
+        }
+
+        int[] layer = new int[1 << 10];
+        int[] next = new int[1 << 10];
+        int layerSize = 1;
+        int nextSize = 0;
+        int[] slotAt = new int[cells]; //group slot at each square, -1 for empty
+
+        dist[start] = 0;
+        layer[0] = start;
+
+        for (int depth = 0; layerSize > 0; depth++) {
+            //the layer grows while we walk it, free blank moves stay on this depth
+            for (int q = 0; q < layerSize; q++) {
+                int key = layer[q];
+                if ((dist[key] & 0xFF) != depth) continue; //reached for less later on
+
+                Arrays.fill(slotAt, -1);
+                for (int j = 0; j < k; j++) slotAt[(key >>> (j << 2)) & 0xF] = j;
+
+                int blank = key >>> blankShift;
+                int rest = key & ((1 << blankShift) - 1);
+
+                for (int m = 0, n = moves.count(blank); m < n; m++) {
+                    int to = moves.target(blank, m);
+                    int slot = slotAt[to];
+                    if (slot < 0) { //empty square, free
+                        int child = rest | (to << blankShift);
+                        if ((dist[child] & 0xFF) > depth) {
+                            dist[child] = (byte) depth;
+                            if (layerSize == layer.length) layer = Arrays.copyOf(layer, layerSize << 1);
+                            layer[layerSize++] = child;
+                        }
+                    } else { //group tile slides into the blank, costs a move
+                        int child = (rest & ~(0xF << (slot << 2))) | (blank << (slot << 2)) | (to << blankShift);
+                        if (dist[child] == UNSET) {
+                            dist[child] = (byte) (depth + 1);
+                            if (nextSize == next.length) next = Arrays.copyOf(next, nextSize << 1);
+                            next[nextSize++] = child;
+                        }
+                    }
+                }
+            }
+
+            int[] swap = layer;
+            layer = next;
+            next = swap;
+            layerSize = nextSize;
+            nextSize = 0;
+        }
+
+        //best value over every blank position
+        byte[] group = new byte[1 << blankShift];
+        Arrays.fill(group, UNSET);
+        int mask = group.length - 1;
+
+        for (int key = 0; key < dist.length; key++) {
+            int d = dist[key] & 0xFF;
+            if (d != 0xFF && d < (group[key & mask] & 0xFF)) group[key & mask] = (byte) d;
+        }
+
+        return group;
+    }
+
+    public String toString() {
+        return getClass().getSimpleName();
+    }
+
+    /*
+     * Lookup layout for one goal
+     */
+    private static final class Tables {
+        final long goal;
+        final int cells;
+        final int[] shift; //tile -> bit offset of its position
+        final int[] groupShift;
+        final long[] groupMask;
+        final int[] base; //offset of each group in data
+        ByteBuffer data;
+
+        Tables(long goal, int cells, int[] sizes, int[] order) {
+            this.goal = goal;
+            this.cells = cells;
+
+            shift = new int[cells];
+            for (int i = 0; i < order.length; i++) shift[order[i]] = i << 2;
+
+            groupShift = new int[sizes.length];
+            groupMask = new long[sizes.length];
+            base = new int[sizes.length];
+
+            int first = 0;
+            int offset = 0;
+            for (int g = 0; g < sizes.length; g++) {
+                groupShift[g] = first << 2;
+                groupMask[g] = (1L << (sizes[g] << 2)) - 1;
+                base[g] = offset;
+
+                first += sizes[g];
+                offset += 1 << (sizes[g] << 2);
+            }
+        }
+    }
+}
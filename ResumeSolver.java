@@ -0,0 +1,90 @@
+package com.company;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/*
+ * Carries on with the solve saved in a Checkpoint file after a restart.
+ *
+ * The file holds the boards, which search wrote it and the name of its
+ * heuristic, which is matched against the BatchSolver heuristics. The
+ * search keeps checkpointing to the same file and removes it once done,
+ * the result is printed as a BatchSolver line.
+ */
+public class ResumeSolver {
+    private static final String USAGE = "Usage: ResumeSolver [--interval ms] [--json] checkpoint";
+    private static final String[] HEURISTICS = {"manhattan", "tiles", "linear", "walking", "pdb", "perfect", "max"};
+
+    public static void main(String[] args) {
+        long interval = Long.getLong("checkpoint.interval", 60000);
+        boolean json = false;
+        String file = null;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--interval") && i + 1 < args.length) interval = interval(args[++i]);
+            else if (args[i].equals("--json")) json = true;
+            else if (!args[i].startsWith("--") && file == null) file = args[i];
+            else usage("Unknown option " + args[i]);
+        }
+        if (file == null) usage("Which checkpoint?");
+
+        Path path = Paths.get(file);
+        Checkpoint.Snapshot snapshot = null;
+        try {
+            snapshot = Checkpoint.read(path);
+        } catch (IOException e) {
+            usage("Can't read checkpoint " + file + ": " + e.getMessage());
+        }
+
+        Heuristic heuristic = heuristic(snapshot.heuristic);
+        if (heuristic == null) usage("No heuristic called " + snapshot.heuristic);
+
+        Checkpoint checkpoint = new Checkpoint(path, interval);
+        Solver solver;
+        if (snapshot.kind == Checkpoint.ASTAR) {
+            AStarSearch search = new AStarSearch(heuristic);
+            search.setCheckpoint(checkpoint);
+            solver = search;
+        } else {
+            IDAStarSearch search = new IDAStarSearch(heuristic);
+            search.setCheckpoint(checkpoint);
+            solver = search;
+        }
+
+        System.err.println("Resuming " + solver.getClass().getSimpleName() + " with " + heuristic
+                + " after " + snapshot.stats.expanded + " expanded nodes");
+
+        Solution solution = solver.solution(new State(snapshot.start, 0), new State(snapshot.goal, 0));
+        BatchSolver.Result result = new BatchSolver.Result(1, solution == null ? "unsolved" : "solved",
+                solution, solver.getStats(), null);
+
+        System.out.println(json ? result.toJson() : result.toString());
+    }
+
+    private static Heuristic heuristic(String name) {
+        for (String candidate : HEURISTICS) {
+            Heuristic heuristic = BatchSolver.heuristic(candidate);
+            if (heuristic.toString().equals(name)) return heuristic;
+        }
+
+        return null;
+    }
+
+    private static long interval(String value) {
+        try {
+            long millis = Long.parseLong(value);
+            if (millis > 0) return millis;
+        } catch (NumberFormatException ignored) {
+        }
+
+        usage("--interval needs a number of milliseconds");
+        return 0;
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+}
@@ -0,0 +1,505 @@
+package com.company;
+
+import java.util.*;
+
+/*
+ * Simplified memory bounded A* (SMA*).
+ *
+ * A tree search like A* that never holds more than maxNodes nodes. When a
+ * new node needs room, the leaf with the highest f (the shallowest one on
+ * ties) is dropped and its f is kept by its parent as the f of that move,
+ * so a parent's f is always the lowest f of everything under it, whether
+ * still in memory or not. A parent with forgotten moves goes back on the
+ * open list under the lowest of them and regenerates that child when it
+ * comes up again, so nothing is lost, only searched again.
+ *
+ * With an admissible heuristic the first goal taken off the open list is
+ * the shortest path, as long as that path fits in maxNodes nodes (one per
+ * board on it). A child that would make the path longer than that gets an
+ * f of infinity, and once everything left is infinite the search gives up
+ * with an IllegalStateException instead of running out of heap. Moving the
+ * blank straight back is never tried, other repeats are searched again.
+ *
+ * The budget is maxNodes, -Dsma.maxNodes or a quarter of the heap split
+ * between the given number of solvers that run at the same time. Nodes are
+ * ids into parallel primitive arrays, with the ids of dropped nodes reused,
+ * and the open and leaf lists are binary heaps of ids that know where each
+ * id sits so a node can be taken out from the middle.
+ */
+class SMAStarSearch implements Solver {
+    private static final int INFINITE = Integer.MAX_VALUE;
+    private static final int NODE_BYTES = 80; //parent, g, h, f, key, children, their f, flags and heap places, without the board
+    private static final int NONE = -1;
+    private static final int MOVES = 4; //child slots per node
+
+    private final Heuristic heuristic;
+    private final long maxNodes; //0 works out a budget from the heap
+    private final int share; //solvers sharing the heap
+    private SearchStats stats = new SearchStats();
+
+    //nodes by id, the ids of dropped nodes are handed out again
+    private byte[] boards; //cells per node
+    private int[] parents;
+    private short[] g;
+    private short[] h;
+    private int[] f; //lowest f known below the node
+    private int[] key; //f on the open list, the lowest forgotten child once expanded
+    private byte[] slots; //index of the move that made it in its parent
+    private byte[] blanks;
+    private byte[] skips; //move back to parent, -1 for the root
+    private byte[] live; //children in memory
+    private byte[] forgotten; //bit per forgotten move
+    private boolean[] expanded;
+    private int[] children; //MOVES per node by move, NONE when not in memory
+    private int[] slotF; //MOVES per node, f of forgotten children
+    private int[] free; //ids of dropped nodes
+    private int freeSize;
+    private int size; //ids handed out so far
+
+    private Heap open; //lowest key first, deepest on ties
+    private Heap leaves; //highest f first, shallowest on ties
+    private long budget;
+    private long nodes;
+    private int busy = NONE; //being expanded, can't be dropped
+
+    private int cells;
+    private MoveTable moves;
+    private HeuristicTable table;
+    private State goal;
+    private long packedGoal;
+    private byte[] goalBoard;
+    private byte[] next; //board of the child being made
+    private int nextH;
+    private int[] scratch;
+
+    SMAStarSearch(Heuristic heuristic) {
+        this(heuristic, Long.getLong("sma.maxNodes", 0), 1);
+    }
+
+    /**
+     * @param maxNodes most nodes kept at once, 0 works it out from the heap
+     * @param share    solvers running at the same time, each gets that part of the heap
+     */
+    SMAStarSearch(Heuristic heuristic, long maxNodes, int share) {
+        this.heuristic = heuristic;
+        this.maxNodes = maxNodes;
+        this.share = Math.max(1, share);
+    }
+
+    /**
+     * @param startNode state to start from
+     * @param endNode   goal state
+     * @return path from start to goal (both included) or null when the goal can't be reached
+     * @throws IllegalStateException when the shortest path needs more than the node budget
+     */
+    public List<State> solve(State startNode, State endNode) {
+        stats = new SearchStats();
+        stats.start();
+
+        List<State> path;
+        try {
+            path = search(startNode, endNode);
+        } finally {
+            release(); //let the nodes go, the next solve may be on another board size
+        }
+
+        stats.finish(path == null ? -1 : path.size() - 1);
+        return path;
+    }
+
+    private List<State> search(State startNode, State endNode) {
+        if (!Solvability.isSolvable(startNode.getState(), endNode.getState())) return null;
+
+        cells = startNode.getState().length;
+        moves = MoveTable.forCells(cells);
+        goal = endNode;
+        goalBoard = ByteNodeTable.pack(endNode.getState());
+        if (PackedBoard.fits(cells)) packedGoal = PackedBoard.pack(endNode.getState());
+        table = heuristic instanceof IncrementalHeuristic
+                ? ((IncrementalHeuristic) heuristic).table(endNode) : null;
+        scratch = new int[cells];
+
+        long most = AStarSearch.heapBudget(NODE_BYTES + cells, share, cells); //also as far as int ids go
+        budget = maxNodes > 0 ? Math.min(maxNodes, most) : most;
+        allocate((int) Math.min(budget + 1, 1 << 10));
+        open = new Heap(false);
+        leaves = new Heap(true);
+        busy = NONE;
+
+        next = ByteNodeTable.pack(startNode.getState());
+        nextH = table != null ? table.calculateSum(startNode.getState()) : estimate(next);
+        int root = add(NONE, NONE, nextH);
+        nodes = 1;
+        attach(root);
+
+        while (true) {
+            int n = open.top();
+            if (key[n] == INFINITE) {
+                throw new IllegalStateException("The shortest path needs more than " + budget + " nodes");
+            }
+
+            if (!expanded[n] && isGoal(n)) return buildPath(n);
+
+            stats.expanded++;
+            busy = n;
+            detach(n);
+
+            if (expanded[n]) regenerate(n);
+            else expand(n);
+
+            busy = NONE;
+            attach(n);
+            backup(n);
+
+            stats.open(open.size());
+            stats.closed(nodes);
+        }
+    }
+
+    private void expand(int n) {
+        int blank = blanks[n];
+        expanded[n] = true;
+
+        for (int m = 0, count = moves.count(blank); m < count; m++) {
+            if (parents[n] != NONE && moves.target(blank, m) == blanks[parents[n]]) { //straight back
+                skips[n] = (byte) m;
+                slotF[n * MOVES + m] = INFINITE;
+                continue;
+            }
+
+            place(n, m, child(n, m, 0));
+        }
+    }
+
+    /*
+     * Brings back the forgotten child with the lowest f
+     */
+    private void regenerate(int n) {
+        int best = -1;
+        for (int m = 0, count = moves.count(blanks[n]); m < count; m++) {
+            if ((forgotten[n] & (1 << m)) != 0 && (best < 0 || slotF[n * MOVES + m] < slotF[n * MOVES + best])) best = m;
+        }
+
+        forgotten[n] &= ~(1 << best);
+        place(n, best, child(n, best, slotF[n * MOVES + best]));
+    }
+
+    /*
+     * Makes the board of move m of n in next, with its h in nextH
+     *
+     * @return f of the child
+     */
+    private int child(int n, int m, int knownF) {
+        int blank = blanks[n];
+        int to = moves.target(blank, m);
+        int tile = boards[n * cells + to];
+
+        System.arraycopy(boards, n * cells, next, 0, cells);
+        next[blank] = (byte) tile;
+        next[to] = 0;
+
+        int childG = g[n] + 1;
+        nextH = table != null ? stats.evaluate(table, h[n], tile, to, blank) : estimate(next);
+        stats.generated++;
+
+        //the path to it would leave no room for the goal
+        if (childG >= budget || (childG == budget - 1 && !Arrays.equals(next, goalBoard))) return INFINITE;
+
+        return Math.max(Math.max(f[n], childG + nextH), knownF); //never below what its parent already knows
+    }
+
+    /*
+     * Stores the child in next under slot m of n, dropping the worst leaf
+     * first when the budget is used up. When the only leaf is n itself the
+     * child is just remembered by its f
+     */
+    private void place(int n, int m, int childF) {
+        if (nodes >= budget) {
+            if (leaves.isEmpty()) {
+                slotF[n * MOVES + m] = childF;
+                forgotten[n] |= 1 << m;
+                return;
+            }
+            evict(leaves.top());
+        }
+
+        int child = add(n, m, childF);
+        children[n * MOVES + m] = child;
+        live[n]++;
+        nodes++;
+        attach(child);
+    }
+
+    private void evict(int leaf) {
+        detach(leaf);
+        int parent = parents[leaf];
+        int m = slots[leaf];
+        boolean expanding = parent == busy;
+
+        if (!expanding) detach(parent);
+        children[parent * MOVES + m] = NONE;
+        live[parent]--;
+        slotF[parent * MOVES + m] = f[leaf];
+        forgotten[parent] |= 1 << m;
+        if (!expanding) attach(parent);
+
+        nodes--;
+        free[freeSize++] = leaf;
+    }
+
+    /*
+     * Raises f of n and its ancestors to the lowest f below them
+     */
+    private void backup(int n) {
+        for (int x = n; x != NONE; x = parents[x]) {
+            int best = INFINITE;
+            for (int m = 0, count = moves.count(blanks[x]); m < count; m++) {
+                if (m == skips[x]) continue;
+                int child = children[x * MOVES + m];
+                int childF = child != NONE ? f[child] : slotF[x * MOVES + m];
+                if (childF < best) best = childF;
+            }
+
+            if (best <= f[x]) return;
+
+            detach(x);
+            f[x] = best;
+            attach(x);
+        }
+    }
+
+    private void attach(int n) {
+        if (!expanded[n]) {
+            key[n] = f[n];
+            open.add(n);
+        } else if (forgotten[n] != 0) {
+            int lowest = INFINITE;
+            for (int m = 0, count = moves.count(blanks[n]); m < count; m++) {
+                if ((forgotten[n] & (1 << m)) != 0 && slotF[n * MOVES + m] < lowest) lowest = slotF[n * MOVES + m];
+            }
+            key[n] = lowest;
+            open.add(n);
+        }
+
+        if (live[n] == 0 && parents[n] != NONE && n != busy) leaves.add(n); //the root stays
+    }
+
+    private void detach(int n) {
+        open.remove(n);
+        leaves.remove(n);
+    }
+
+    /*
+     * New node for the board in next, reusing the id of a dropped one
+     */
+    private int add(int parent, int m, int childF) {
+        int id;
+        if (freeSize > 0) {
+            id = free[--freeSize];
+        } else {
+            if (size == parents.length) grow();
+            id = size++;
+        }
+
+        System.arraycopy(next, 0, boards, id * cells, cells);
+        int blank = 0;
+        while (next[blank] != 0) blank++;
+
+        parents[id] = parent;
+        g[id] = (short) (parent == NONE ? 0 : g[parent] + 1);
+        h[id] = (short) nextH;
+        f[id] = parent == NONE ? nextH : childF;
+        slots[id] = (byte) m;
+        blanks[id] = (byte) blank;
+        skips[id] = -1;
+        live[id] = 0;
+        forgotten[id] = 0;
+        expanded[id] = false;
+        Arrays.fill(children, id * MOVES, id * MOVES + MOVES, NONE);
+
+        return id;
+    }
+
+    private void allocate(int capacity) {
+        boards = new byte[capacity * cells];
+        parents = new int[capacity];
+        g = new short[capacity];
+        h = new short[capacity];
+        f = new int[capacity];
+        key = new int[capacity];
+        slots = new byte[capacity];
+        blanks = new byte[capacity];
+        skips = new byte[capacity];
+        live = new byte[capacity];
+        forgotten = new byte[capacity];
+        expanded = new boolean[capacity];
+        children = new int[capacity * MOVES];
+        slotF = new int[capacity * MOVES];
+        free = new int[capacity];
+        freeSize = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min(parents.length + (long) (parents.length >> 1), budget + 1);
+
+        boards = Arrays.copyOf(boards, capacity * cells);
+        parents = Arrays.copyOf(parents, capacity);
+        g = Arrays.copyOf(g, capacity);
+        h = Arrays.copyOf(h, capacity);
+        f = Arrays.copyOf(f, capacity);
+        key = Arrays.copyOf(key, capacity);
+        slots = Arrays.copyOf(slots, capacity);
+        blanks = Arrays.copyOf(blanks, capacity);
+        skips = Arrays.copyOf(skips, capacity);
+        live = Arrays.copyOf(live, capacity);
+        forgotten = Arrays.copyOf(forgotten, capacity);
+        expanded = Arrays.copyOf(expanded, capacity);
+        children = Arrays.copyOf(children, capacity * MOVES);
+        slotF = Arrays.copyOf(slotF, capacity * MOVES);
+        free = Arrays.copyOf(free, capacity);
+    }
+
+    private void release() {
+        boards = null;
+        parents = null;
+        g = null;
+        h = null;
+        f = null;
+        key = null;
+        slots = null;
+        blanks = null;
+        skips = null;
+        live = null;
+        forgotten = null;
+        expanded = null;
+        children = null;
+        slotF = null;
+        free = null;
+        open = null;
+        leaves = null;
+        busy = NONE;
+    }
+
+    private boolean isGoal(int n) {
+        int base = n * cells;
+        for (int i = 0; i < cells; i++) {
+            if (boards[base + i] != goalBoard[i]) return false;
+        }
+
+        return true;
+    }
+
+    private int estimate(byte[] board) {
+        for (int i = 0; i < cells; i++) scratch[i] = board[i];
+        if (PackedBoard.fits(cells)) return stats.evaluate(heuristic, PackedBoard.pack(scratch), packedGoal, cells);
+
+        return stats.evaluate(heuristic, new State(scratch.clone(), 0), goal);
+    }
+
+    private List<State> buildPath(int n) {
+        List<State> path = new ArrayList<>(g[n] + 1);
+        for (int x = n; x != NONE; x = parents[x]) {
+            int[] board = new int[cells];
+            for (int i = 0; i < cells; i++) board[i] = boards[x * cells + i];
+            path.add(new State(board, g[x]));
+        }
+        Collections.reverse(path);
+
+        return path;
+    }
+
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    /*
+     * Binary heap of node ids that knows where every id sits, so any node
+     * can be taken out, not only the top
+     */
+    private final class Heap {
+        private final boolean worstLeaf; //highest f first, shallowest on ties, otherwise lowest key, deepest on ties
+        private int[] items = new int[1 << 6];
+        private int[] places = new int[1 << 6]; //index in items + 1 by id, 0 when not in
+        private int size;
+
+        Heap(boolean worstLeaf) {
+            this.worstLeaf = worstLeaf;
+        }
+
+        void add(int id) {
+            if (size == items.length) items = Arrays.copyOf(items, size << 1);
+            if (id >= places.length) places = Arrays.copyOf(places, Math.max(id + 1, places.length << 1));
+
+            up(size++, id);
+        }
+
+        /*
+         * Takes id out, nothing happens when it isn't in
+         */
+        void remove(int id) {
+            if (id >= places.length || places[id] == 0) return;
+
+            int i = places[id] - 1;
+            places[id] = 0;
+            int last = items[--size];
+            if (i == size) return;
+
+            if (i > 0 && before(last, items[(i - 1) >>> 1])) up(i, last);
+            else down(i, last);
+        }
+
+        int top() {
+            return items[0];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void up(int i, int id) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(id, items[parent])) break;
+
+                place(i, items[parent]);
+                i = parent;
+            }
+            place(i, id);
+        }
+
+        private void down(int i, int id) {
+            int half = size >>> 1;
+            while (i < half) {
+                int child = (i << 1) + 1;
+                if (child + 1 < size && before(items[child + 1], items[child])) child++;
+                if (!before(items[child], id)) break;
+
+                place(i, items[child]);
+                i = child;
+            }
+            place(i, id);
+        }
+
+        private void place(int i, int id) {
+            items[i] = id;
+            places[id] = i + 1;
+        }
+
+        private boolean before(int a, int b) {
+            if (worstLeaf) {
+                if (f[a] != f[b]) return f[a] > f[b];
+                if (g[a] != g[b]) return g[a] < g[b];
+                return a > b;
+            }
+
+            if (key[a] != key[b]) return key[a] < key[b];
+            if (g[a] != g[b]) return g[a] > g[b];
+            return a < b;
+        }
+    }
+}
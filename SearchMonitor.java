@@ -0,0 +1,148 @@
+package com.company;
+
+import jdk.jfr.*;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/*
+ * Where finished solves are reported: running totals for JMX (jconsole,
+ * or any JMX exporter) and one JFR event per solve when a recording is on.
+ *
+ * Called once per solve, never from the search loop.
+ */
+final class SearchMonitor implements SearchStatsMXBean {
+    private static final SearchMonitor INSTANCE = new SearchMonitor();
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(INSTANCE, new ObjectName("com.company:type=Search"));
+        } catch (JMException | SecurityException e) {
+            System.err.println("Search statistics not available over JMX: " + e.getMessage());
+        }
+    }
+
+    private final AtomicLong solves = new AtomicLong();
+    private final AtomicLong expanded = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final LongAccumulator peakOpen = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator peakClosed = new LongAccumulator(Math::max, 0);
+    private final AtomicLong heuristicNanos = new AtomicLong();
+    private final AtomicLong searchNanos = new AtomicLong();
+    private volatile double lastBranchingFactor;
+
+    private SearchMonitor() {
+    }
+
+    public static void record(SearchStats stats) {
+        INSTANCE.add(stats);
+
+        SearchEvent event = new SearchEvent();
+        if (event.shouldCommit()) {
+            event.expanded = stats.expanded;
+            event.generated = stats.generated;
+            event.duplicates = stats.duplicates;
+            event.peakOpen = stats.peakOpen;
+            event.peakClosed = stats.peakClosed;
+            event.heuristicNanos = stats.heuristicNanos;
+            event.searchNanos = stats.elapsedNanos;
+            event.depth = stats.depth;
+            event.branchingFactor = stats.effectiveBranchingFactor();
+            event.commit();
+        }
+    }
+
+    private void add(SearchStats stats) {
+        solves.incrementAndGet();
+        expanded.addAndGet(stats.expanded);
+        generated.addAndGet(stats.generated);
+        duplicates.addAndGet(stats.duplicates);
+        peakOpen.accumulate(stats.peakOpen);
+        peakClosed.accumulate(stats.peakClosed);
+        heuristicNanos.addAndGet(stats.heuristicNanos);
+        searchNanos.addAndGet(stats.elapsedNanos);
+        if (stats.depth > 0) lastBranchingFactor = stats.effectiveBranchingFactor();
+    }
+
+    public long getSolves() {
+        return solves.get();
+    }
+
+    public long getNodesExpanded() {
+        return expanded.get();
+    }
+
+    public long getNodesGenerated() {
+        return generated.get();
+    }
+
+    public long getDuplicatesPruned() {
+        return duplicates.get();
+    }
+
+    public long getPeakOpen() {
+        return peakOpen.get();
+    }
+
+    public long getPeakClosed() {
+        return peakClosed.get();
+    }
+
+    public double getHeuristicMillis() {
+        return heuristicNanos.get() / 1e6;
+    }
+
+    public double getSearchMillis() {
+        return searchNanos.get() / 1e6;
+    }
+
+    public double getNodesPerSecond() {
+        long nanos = searchNanos.get();
+
+        return nanos == 0 ? 0 : expanded.get() * 1e9 / nanos;
+    }
+
+    public double getLastEffectiveBranchingFactor() {
+        return lastBranchingFactor;
+    }
+
+    @Name("com.company.Search")
+    @Label("Puzzle Search")
+    @Category("Puzzle")
+    @Description("One finished solve")
+    static final class SearchEvent extends Event {
+        @Label("Nodes Expanded")
+        long expanded;
+
+        @Label("Nodes Generated")
+        long generated;
+
+        @Label("Duplicates Pruned")
+        long duplicates;
+
+        @Label("Peak Open")
+        long peakOpen;
+
+        @Label("Peak Closed")
+        long peakClosed;
+
+        @Label("Heuristic Time")
+        @Timespan
+        long heuristicNanos;
+
+        @Label("Search Time")
+        @Timespan
+        long searchNanos;
+
+        @Label("Solution Length")
+        int depth;
+
+        @Label("Effective Branching Factor")
+        double branchingFactor;
+    }
+}
@@ -0,0 +1,204 @@
+package com.company;
+
+import java.util.Locale;
+
+/*
+ * Counters for one solve. Each solver owns one and resets it at the start of
+ * every solve, so counting never allocates anything.
+ *
+ * Timing every heuristic call would cost about as much as the call itself,
+ * so only every 64th evaluation is timed and the total is scaled up from
+ * those samples, less what reading the clock costs by itself, measured
+ * once. A sample over 100us was held up by something else and is only
+ * counted once. A HeuristicTable delta is two array lookups, quicker than reading
+ * the clock, so those are only counted and not timed: with an incremental
+ * heuristic heuristic_ms is the full evaluations alone.
+ */
+final class SearchStats {
+    private static final int SAMPLE_SHIFT = 6;
+    private static final int SAMPLE_MASK = (1 << SAMPLE_SHIFT) - 1;
+    private static final long CLOCK_NANOS = clockNanos(); //a timed sample's own share of reading the clock
+    private static final long PAUSE_NANOS = 100_000; //longer samples are not scaled up
+
+    long expanded;
+    long generated;
+    long duplicates; //children dropped because the board was already reached for the same or less
+    long peakOpen;
+    long peakClosed;
+    long evaluations;
+    long heuristicNanos;
+    long elapsedNanos;
+    int depth = -1; //solution length, -1 when nothing was found
+
+    private long started;
+
+    public void start() {
+        expanded = 0;
+        generated = 0;
+        duplicates = 0;
+        peakOpen = 0;
+        peakClosed = 0;
+        evaluations = 0;
+        heuristicNanos = 0;
+        elapsedNanos = 0;
+        depth = -1;
+        started = System.nanoTime();
+    }
+
+    /*
+     * Starts again from the counters of a Checkpoint, its time included
+     */
+    public void resume(SearchStats saved) {
+        start();
+        add(saved);
+        started -= saved.elapsedNanos;
+    }
+
+    /*
+     * Counters so far of a solve that is still running
+     */
+    public SearchStats snapshot() {
+        SearchStats copy = copy();
+        copy.elapsedNanos = System.nanoTime() - started;
+
+        return copy;
+    }
+
+    /*
+     * Ends the solve and reports it to JMX and JFR
+     */
+    public void finish(int depth) {
+        this.depth = depth;
+        elapsedNanos = System.nanoTime() - started;
+
+        SearchMonitor.record(this);
+    }
+
+    public void open(long size) {
+        if (size > peakOpen) peakOpen = size;
+    }
+
+    public void closed(long size) {
+        if (size > peakClosed) peakClosed = size;
+    }
+
+    public int evaluate(Heuristic heuristic, long board, long goal, int cells) {
+        if ((++evaluations & SAMPLE_MASK) != 0) return heuristic.calculateSum(board, goal, cells);
+
+        long t = System.nanoTime();
+        int h = heuristic.calculateSum(board, goal, cells);
+        sample(System.nanoTime() - t);
+
+        return h;
+    }
+
+    public int evaluate(Heuristic heuristic, State board, State goal) {
+        if ((++evaluations & SAMPLE_MASK) != 0) return heuristic.calculateSum(board, goal);
+
+        long t = System.nanoTime();
+        int h = heuristic.calculateSum(board, goal);
+        sample(System.nanoTime() - t);
+
+        return h;
+    }
+
+    /*
+     * h of a child from its parent's h, see IncrementalHeuristic. Counted, not timed
+     */
+    public int evaluate(HeuristicTable table, int parentH, int tile, int from, int to) {
+        evaluations++;
+
+        return parentH + table.calculateDelta(tile, from, to);
+    }
+
+    private void sample(long nanos) {
+        nanos -= CLOCK_NANOS;
+        if (nanos <= 0) return;
+
+        //a pause (GC, the JIT, a table built on first use) happened once, not on every call
+        heuristicNanos += nanos > PAUSE_NANOS ? nanos : nanos << SAMPLE_SHIFT;
+    }
+
+    /*
+     * Average cost of one nanoTime call, once the loop reading it is compiled
+     */
+    private static long clockNanos() {
+        long sink = 0;
+        for (int i = 0; i < 200_000; i++) sink += System.nanoTime(); //warm up
+
+        int reads = 100_000;
+        long t = System.nanoTime();
+        for (int i = 0; i < reads; i++) sink += System.nanoTime();
+        long nanos = (System.nanoTime() - t) / reads;
+
+        return sink == 0 ? nanos + 1 : nanos; //sink keeps the loops from being dropped
+    }
+
+    /*
+     * Adds the counters of another part of the same search, e.g. a worker thread
+     */
+    public void add(SearchStats other) {
+        expanded += other.expanded;
+        generated += other.generated;
+        duplicates += other.duplicates;
+        peakOpen += other.peakOpen;
+        peakClosed += other.peakClosed;
+        evaluations += other.evaluations;
+        heuristicNanos += other.heuristicNanos;
+    }
+
+    public SearchStats copy() {
+        SearchStats copy = new SearchStats();
+        copy.add(this);
+        copy.elapsedNanos = elapsedNanos;
+        copy.depth = depth;
+
+        return copy;
+    }
+
+    public double nodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : expanded * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Branching factor b a uniform tree would need to hold every generated
+     * node within the solution depth d: N + 1 = 1 + b + b^2 + ... + b^d
+     *
+     * @return b, or 0 when there is no solution to measure against
+     */
+    public double effectiveBranchingFactor() {
+        if (depth <= 0 || generated == 0) return 0;
+
+        double low = 1;
+        double high = Math.max(2, generated);
+        for (int i = 0; i < 64; i++) { //bisection, the tree size only grows with b
+            double b = (low + high) / 2;
+
+            double nodes = 0;
+            double power = 1;
+            for (int d = 1; d <= depth && nodes <= generated; d++) {
+                power *= b;
+                nodes += power;
+            }
+
+            if (nodes > generated) high = b;
+            else low = b;
+        }
+
+        return (low + high) / 2;
+    }
+
+    public String toString() {
+        return String.format(Locale.ROOT, "expanded=%d generated=%d duplicates=%d peak_open=%d peak_closed=%d"
+                        + " heuristic_ms=%.3f nodes_per_sec=%.0f ebf=%.3f",
+                expanded, generated, duplicates, peakOpen, peakClosed,
+                heuristicNanos / 1e6, nodesPerSecond(), effectiveBranchingFactor());
+    }
+
+    public String toJson() {
+        return String.format(Locale.ROOT, "\"expanded\":%d,\"generated\":%d,\"duplicates\":%d,\"peakOpen\":%d,"
+                        + "\"peakClosed\":%d,\"heuristicMs\":%.3f,\"nodesPerSec\":%.0f,\"ebf\":%.3f",
+                expanded, generated, duplicates, peakOpen, peakClosed,
+                heuristicNanos / 1e6, nodesPerSecond(), effectiveBranchingFactor());
+    }
+}
@@ -0,0 +1,26 @@
+package com.company;
+
+/*
+ * Totals over every solve in this JVM, registered as com.company:type=Search
+ */
+public interface SearchStatsMXBean {
+    long getSolves();
+
+    long getNodesExpanded();
+
+    long getNodesGenerated();
+
+    long getDuplicatesPruned();
+
+    long getPeakOpen();
+
+    long getPeakClosed();
+
+    double getHeuristicMillis();
+
+    double getSearchMillis();
+
+    double getNodesPerSecond();
+
+    double getLastEffectiveBranchingFactor();
+}
@@ -0,0 +1,159 @@
+package com.company;
+
+import java.io.PrintStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/*
+ * A solved puzzle as its start board and the moves of the blank, one letter
+ * per move: U, D, L or R for the direction the blank goes.
+ *
+ * That is all a solution needs, the boards in between are only rebuilt when
+ * they are asked for, one at a time by states(), and only print() turns
+ * them into text. A batch of thousands of puzzles can write the move strings
+ * without ever rendering a board.
+ */
+final class Solution {
+    private final int[] start;
+    private final int width;
+    private final String moves;
+    private final double bound; //most this can be longer than the shortest path, as a factor
+
+    Solution(int[] start, String moves) {
+        this(start, moves, 1);
+    }
+
+    Solution(int[] start, String moves, double bound) {
+        this.start = start.clone();
+        this.width = (int) Math.sqrt(start.length);
+        this.moves = moves;
+        this.bound = bound;
+    }
+
+    /*
+     * The moves of a path from one of the solvers, null stays null
+     */
+    public static Solution of(List<State> path) {
+        if (path == null) return null;
+
+        int[] start = path.get(0).getState();
+        int width = (int) Math.sqrt(start.length);
+
+        StringBuilder moves = new StringBuilder(path.size() - 1);
+        int blank = path.get(0).getBlank();
+        for (int i = 1; i < path.size(); i++) {
+            int next = path.get(i).getBlank();
+            moves.append(direction(blank, next, width));
+            blank = next;
+        }
+
+        return new Solution(start, moves.toString());
+    }
+
+    /*
+     * From start and the square the blank is on after each move
+     */
+    public static Solution of(int[] start, byte[] blanks) {
+        int width = (int) Math.sqrt(start.length);
+
+        StringBuilder moves = new StringBuilder(blanks.length);
+        int blank = 0;
+        while (start[blank] != 0) blank++;
+        for (byte next : blanks) {
+            moves.append(direction(blank, next, width));
+            blank = next;
+        }
+
+        return new Solution(start, moves.toString());
+    }
+
+    private static char direction(int blank, int next, int width) {
+        if (next == blank - width) return 'U';
+        if (next == blank + width) return 'D';
+        if (next == blank - 1) return 'L';
+        if (next == blank + 1) return 'R';
+
+        throw new IllegalArgumentException("Not a move: blank " + blank + " to " + next);
+    }
+
+    public String getMoves() {
+        return moves;
+    }
+
+    public int length() {
+        return moves.length();
+    }
+
+    /*
+     * 1 for a shortest path, more when a solver traded length for time
+     */
+    public double getBound() {
+        return bound;
+    }
+
+    public Solution withBound(double bound) {
+        return new Solution(start, moves, bound);
+    }
+
+    /*
+     * The same moves made from another start, e.g. the board before its tiles were renamed
+     */
+    public Solution from(int[] start) {
+        return new Solution(start, moves, bound);
+    }
+
+    /*
+     * Every board from start to goal, each built when the iterator gets to it
+     */
+    public Iterable<State> states() {
+        return () -> new Iterator<State>() {
+            private final int[] board = start.clone();
+            private int blank = -1;
+            private int step;
+
+            public boolean hasNext() {
+                return step <= moves.length();
+            }
+
+            public State next() {
+                if (!hasNext()) throw new NoSuchElementException();
+
+                if (blank < 0) {
+                    blank = 0;
+                    while (board[blank] != 0) blank++;
+                } else {
+                    int next = target(moves.charAt(step - 1));
+                    Utils.swap(board, blank, next);
+                    blank = next;
+                }
+
+                return new State(board.clone(), step++, blank);
+            }
+
+            private int target(char move) {
+                switch (move) {
+                    case 'U':
+                        return blank - width;
+                    case 'D':
+                        return blank + width;
+                    case 'L':
+                        return blank - 1;
+                    default:
+                        return blank + 1;
+                }
+            }
+        };
+    }
+
+    /*
+     * Writes every board of the path, rendering one at a time
+     */
+    public void print(PrintStream out) {
+        for (State s : states()) out.printf("******* Level(%d) ********\n%s\n", s.getLevel(), s);
+    }
+
+    public String toString() {
+        return moves;
+    }
+}
@@ -0,0 +1,159 @@
+package com.company;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Solutions already found, so a puzzle that comes back is answered without
+ * searching.
+ *
+ * The key is the start board relabelled by the goal: every tile is replaced
+ * by the index of its square in the goal (the blank too). Two queries get
+ * the same key exactly when one is the other with the tiles renamed, and a
+ * solution only depends on where the blank goes, so they share one entry.
+ * The value is that list of blank squares, one byte per move, which is
+ * replayed on the real start board to rebuild the path.
+ *
+ * At most capacity entries are kept, the least recently used goes first.
+ * Only boards PackedBoard can hold have a key, bigger ones are never cached.
+ * The cache can be shared by solvers on different threads.
+ */
+final class SolutionCache {
+    private static final int MAGIC = 0x50534331; //"PSC1"
+    private static final byte[] NO_PATH = new byte[0]; //marks puzzles the solver gave up on
+
+    private static SolutionCache shared;
+
+    private final Map<Long, byte[]> entries;
+    private final Path file; //null when the cache only lives in memory
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity most solutions to keep
+     * @param file     where solutions are loaded from and saved to, or null
+     */
+    SolutionCache(int capacity, Path file) {
+        this.file = file;
+        this.entries = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > capacity;
+            }
+        };
+
+        if (file != null) load();
+    }
+
+    /*
+     * The cache of the interactive mode, sized by -Dcache.size and only kept
+     * on disk when -Dcache.file is set
+     */
+    public static synchronized SolutionCache shared() {
+        if (shared == null) {
+            String file = System.getProperty("cache.file");
+            shared = new SolutionCache(Integer.getInteger("cache.size", 10000), file == null ? null : Paths.get(file));
+        }
+
+        return shared;
+    }
+
+    /*
+     * Key for start to goal, or -1 when the board is too big to have one.
+     * A key is a permutation of 0..cells-1 so keys of different sizes never match
+     */
+    public static long key(int[] start, int[] goal) {
+        int cells = start.length;
+        if (!PackedBoard.fits(cells)) return -1;
+
+        int[] goalIndex = new int[cells];
+        for (int i = 0; i < cells; i++) goalIndex[goal[i]] = i;
+
+        long key = 0;
+        for (int i = 0; i < cells; i++) key |= (long) goalIndex[start[i]] << (i << 2);
+
+        return key;
+    }
+
+    /**
+     * @return blank squares visited after start, NO_PATH when no path was found,
+     * or null when the puzzle isn't cached
+     */
+    public synchronized byte[] get(long key) {
+        byte[] moves = entries.get(key);
+
+        if (moves == null) misses++;
+        else hits++;
+
+        return moves;
+    }
+
+    public synchronized void put(long key, byte[] moves) {
+        entries.put(key, moves == null ? NO_PATH : moves);
+    }
+
+    public static boolean isNoPath(byte[] moves) {
+        return moves == NO_PATH;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /*
+     * Writes every entry to the file, oldest first so loading keeps the LRU order
+     */
+    public void save() throws IOException {
+        if (file == null) return;
+
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, "solutions", ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            synchronized (this) {
+                out.writeInt(MAGIC);
+                out.writeInt(entries.size());
+                for (Map.Entry<Long, byte[]> e : entries.entrySet()) {
+                    out.writeLong(e.getKey());
+                    out.writeShort(e.getValue() == NO_PATH ? -1 : e.getValue().length);
+                    out.write(e.getValue());
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void load() {
+        if (!Files.exists(file)) return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("not a solution cache");
+
+            for (int n = in.readInt(); n > 0; n--) {
+                long key = in.readLong();
+                int length = in.readShort();
+
+                byte[] moves = length < 0 ? NO_PATH : new byte[length];
+                in.readFully(moves);
+                entries.put(key, moves);
+            }
+        } catch (IOException e) {
+            entries.clear(); //start over rather than trust half a file
+            System.err.println("Ignoring solution cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    public String toString() {
+        return getClass().getSimpleName() + " size=" + size() + " hits=" + getHits() + " misses=" + getMisses();
+    }
+}
@@ -0,0 +1,43 @@
+package com.company;
+
+/*
+ * Tells whether a goal can be reached from a start state at all.
+ *
+ * Every move swaps the blank with a neighbour, so each move flips the parity
+ * of the permutation taking the start to the goal, and also flips the parity
+ * of how far the blank is from its goal square. Both parities therefore have
+ * to match, and for N x N boards that is also enough. This is the usual
+ * inversion count plus blank row rule, but it works for any goal state and
+ * for odd and even widths alike.
+ *
+ * The permutation parity comes from counting its cycles, which is O(n).
+ */
+final class Solvability {
+    private Solvability() {
+    }
+
+    public static boolean isSolvable(int[] start, int[] goal) {
+        int cells = start.length;
+        int sqrt = (int) Math.sqrt(cells);
+
+        int[] goalIndex = new int[cells];
+        for (int i = 0; i < cells; i++) goalIndex[goal[i]] = i;
+
+        //a permutation of n elements with c cycles is made of n - c swaps
+        boolean[] seen = new boolean[cells];
+        int cycles = 0;
+        for (int i = 0; i < cells; i++) {
+            if (seen[i]) continue;
+
+            cycles++;
+            for (int j = i; !seen[j]; j = goalIndex[start[j]]) seen[j] = true;
+        }
+
+        int from = 0;
+        while (start[from] != 0) from++;
+        int to = goalIndex[0];
+        int blankDistance = Math.abs(from / sqrt - to / sqrt) + Math.abs(from % sqrt - to % sqrt);
+
+        return ((cells - cycles) & 1) == (blankDistance & 1);
+    }
+}
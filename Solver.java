@@ -0,0 +1,38 @@
+package com.company;
+
+import java.util.List;
+
+/*
+ * AI search used by findEndState, returns the moves from start to goal
+ */
+interface Solver {
+    /**
+     * @param startNode state to start from
+     * @param endNode   goal state
+     * @return path from start to goal (both included) or null when the goal can't be reached
+     */
+    List<State> solve(State startNode, State endNode);
+
+    /*
+     * Same search, kept as moves rather than boards
+     */
+    default Solution solution(State startNode, State endNode) {
+        return Solution.of(solve(startNode, endNode));
+    }
+
+    /*
+     * False when paths can be longer than the shortest one, see Solution.getBound
+     */
+    default boolean isOptimal() {
+        return true;
+    }
+
+    /*
+     * Counters of the last call to solve, overwritten by the next one
+     */
+    SearchStats getStats();
+
+    default long getNodesExpanded() {
+        return getStats().expanded;
+    }
+}
@@ -0,0 +1,93 @@
+package com.company;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Solves 3 x 3 boards without searching.
+ *
+ * EightPuzzleTable knows the exact distance of every board, so from the
+ * start there is always a neighbour one move closer to the goal. Stepping
+ * to it until the distance reaches 0 gives a shortest path after at most
+ * 31 moves and 4 lookups per move. Other board sizes go to an AStarSearch
+ * with the fallback heuristic, or ManhattanDistance when that is the table.
+ */
+class TableWalk implements Solver {
+    private final EightPuzzleTable table;
+    private final Heuristic fallback;
+    private final int share; //solvers sharing the heap, for the fallback
+
+    private SearchStats stats = new SearchStats();
+
+    TableWalk(EightPuzzleTable table, Heuristic fallback) {
+        this(table, fallback, 1);
+    }
+
+    /**
+     * @param share solvers running at the same time, each gets that part of the heap
+     */
+    TableWalk(EightPuzzleTable table, Heuristic fallback, int share) {
+        this.table = table;
+        this.fallback = fallback instanceof EightPuzzleTable ? new ManhattanDistance() : fallback; //only knows 3 x 3
+        this.share = Math.max(1, share);
+    }
+
+    public List<State> solve(State startNode, State endNode) {
+        if (startNode.getState().length != EightPuzzleTable.CELLS) {
+            AStarSearch search = new AStarSearch(fallback, 0, share);
+            List<State> path = search.solve(startNode, endNode);
+            stats = search.getStats(); //already reported by that search
+            return path;
+        }
+
+        stats = new SearchStats();
+        stats.start();
+        List<State> path = walk(startNode, endNode);
+        stats.finish(path == null ? -1 : path.size() - 1);
+
+        return path;
+    }
+
+    private List<State> walk(State startNode, State endNode) {
+        int cells = EightPuzzleTable.CELLS;
+        MoveTable moves = MoveTable.forCells(cells);
+        long goal = PackedBoard.pack(endNode.getState());
+        long board = PackedBoard.pack(startNode.getState());
+
+        int d = lookup(board, goal);
+        if (d < 0) return null;
+
+        List<State> path = new ArrayList<>(d + 1);
+        path.add(new State(startNode.getState().clone(), 0));
+
+        while (d > 0) {
+            stats.expanded++;
+            int blank = PackedBoard.blankIndex(board, cells);
+
+            for (int m = 0, n = moves.count(blank); m < n; m++) {
+                long child = PackedBoard.move(board, blank, moves.target(blank, m));
+                stats.generated++;
+
+                if (lookup(child, goal) == d - 1) {
+                    board = child;
+                    break;
+                }
+            }
+
+            d--;
+            path.add(new State(PackedBoard.unpack(board, cells), path.size()));
+        }
+
+        return path;
+    }
+
+    private int lookup(long board, long goal) {
+        stats.evaluations++;
+
+        return table.distance(board, goal, EightPuzzleTable.CELLS);
+    }
+
+    public SearchStats getStats() {
+        return stats;
+    }
+}
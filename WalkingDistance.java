@@ -0,0 +1,147 @@
+package com.company;
+
+import java.util.Arrays;
+
+/*
+ * Walking distance heuristic for 3 x 3 and 4 x 4 boards.
+ *
+ * Looking only at rows, a board is summed up by how many tiles that belong
+ * in goal row j currently sit in row i, plus the row the blank is in. A
+ * vertical move swaps the blank with one tile from the row above or below.
+ * A breadth first search from the goal over these count tables gives the
+ * exact number of vertical moves each one needs, doing the same for columns
+ * gives the horizontal moves and the two add up. Tiles in the same row are
+ * interchangeable, so this catches most of what Manhattan distance and
+ * linear conflicts miss and the tables stay small (24964 entries for 4 x 4).
+ *
+ * Count tables are keyed by a long, 3 bits per count with the blank's line
+ * above them, and stored in a NodeTable with the distance as g.
+ */
+class WalkingDistance implements Heuristic {
+    static final int MAX_WIDTH = 4; //counts need 3 bits, 4 x 4 x 3 + 2 bits fits a long
+
+    private volatile Tables tables; //for the last goal used
+
+    public int calculateSum(State currentState, State goalState) {
+        int cells = currentState.getState().length;
+
+        return calculateSum(PackedBoard.pack(currentState.getState()), PackedBoard.pack(goalState.getState()), cells);
+    }
+
+    public int calculateSum(long currentState, long goalState, int cells) {
+        Tables t = tables;
+        if (t == null || t.goal != goalState) tables = t = new Tables(goalState, cells);
+
+        int sqrt = t.sqrt;
+        long rowKey = 0;
+        long colKey = 0;
+
+        for (int i = 0; i < cells; i++) {
+            int tile = PackedBoard.get(currentState, i);
+            int r = i / sqrt;
+            int c = i % sqrt;
+
+            if (tile == 0) {
+                rowKey |= ((long) r) << t.blankShift;
+                colKey |= ((long) c) << t.blankShift;
+            } else {
+                rowKey += 1L << (3 * (r * sqrt + t.goalRow[tile]));
+                colKey += 1L << (3 * (c * sqrt + t.goalCol[tile]));
+            }
+        }
+
+        int rows = t.rows.find(rowKey);
+        int cols = t.cols.find(colKey);
+
+        //a count table that isn't in the search can only come from an unsolvable board, 0 is still a lower bound
+        return (rows < 0 ? 0 : t.rows.g(rows)) + (cols < 0 ? 0 : t.cols.g(cols));
+    }
+
+    /*
+     * Breadth first search over count tables from the goal, blankLine is the
+     * row (or column) the blank has in the goal state
+     */
+    private static NodeTable build(int sqrt, int blankLine) {
+        int blankShift = 3 * sqrt * sqrt;
+        long countMask = (1L << blankShift) - 1;
+
+        long start = ((long) blankLine) << blankShift;
+        for (int i = 0; i < sqrt; i++) start += ((long) (i == blankLine ? sqrt - 1 : sqrt)) << (3 * (i * sqrt + i));
+
+        NodeTable table = new NodeTable(1 << 15);
+        long[] queue = new long[1 << 10];
+        int head = 0;
+        int tail = 0;
+
+        table.add(start, 0, 0, NodeTable.NO_PARENT);
+        queue[tail++] = start;
+
+        while (head < tail) {
+            long key = queue[head++];
+            int d = table.g(table.find(key));
+            int blank = (int) (key >>> blankShift);
+
+            for (int from = blank - 1; from <= blank + 1; from += 2) {
+                if (from < 0 || from >= sqrt) continue;
+
+                for (int j = 0; j < sqrt; j++) {
+                    if (((key >>> (3 * (from * sqrt + j))) & 7) == 0) continue; //no tile of goal line j there
+
+                    //one tile of goal line j walks into the blank's line, the blank takes its place
+                    long child = (key & countMask) - (1L << (3 * (from * sqrt + j))) + (1L << (3 * (blank * sqrt + j)));
+                    child |= ((long) from) << blankShift;
+
+                    if (table.find(child) < 0) {
+                        table.add(child, d + 1, 0, NodeTable.NO_PARENT);
+                        if (tail == queue.length) queue = Arrays.copyOf(queue, tail << 1);
+                        queue[tail++] = child;
+                    }
+                }
+            }
+        }
+
+        return table;
+    }
+
+    public String toString() {
+        return getClass().getSimpleName();
+    }
+
+    /*
+     * Goal lines of every tile and the count tables for one goal
+     */
+    private static final class Tables {
+        final long goal;
+        final int sqrt;
+        final int blankShift;
+        final int[] goalRow;
+        final int[] goalCol;
+        final NodeTable rows;
+        final NodeTable cols;
+
+        Tables(long goal, int cells) {
+            this.goal = goal;
+            sqrt = (int) Math.sqrt(cells);
+
+            if (sqrt > MAX_WIDTH) {
+                throw new IllegalArgumentException("Walking distance supports boards up to "
+                        + MAX_WIDTH + " x " + MAX_WIDTH);
+            }
+
+            blankShift = 3 * sqrt * sqrt;
+            goalRow = new int[cells];
+            goalCol = new int[cells];
+
+            int blank = 0;
+            for (int i = 0; i < cells; i++) {
+                int tile = PackedBoard.get(goal, i);
+                goalRow[tile] = i / sqrt;
+                goalCol[tile] = i % sqrt;
+                if (tile == 0) blank = i;
+            }
+
+            rows = build(sqrt, blank / sqrt);
+            cols = build(sqrt, blank % sqrt);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.company;
+
+import java.util.*;
+
+/*
+ * Fixed puzzles for the benchmarks, so numbers from different runs compare.
+ *
+ * The AStarBetter test states are always included, the rest are random
+ * walks back from the goal with a fixed seed so every instance is solvable.
+ */
+final class Corpus {
+    private static final long SEED = 42;
+
+    private Corpus() {
+    }
+
+    static int[] goal(int cells) {
+        int[] goal = new int[cells];
+        for (int i = 0; i < cells - 1; i++) goal[i] = i + 1;
+
+        return goal;
+    }
+
+    static List<int[]> eightPuzzles() {
+        List<int[]> boards = new ArrayList<>();
+        boards.add(board("2 4 3 1 0 6 7 5 8")); //project 8 puzzle
+        boards.addAll(randomWalks(9, 12, 60));
+
+        return boards;
+    }
+
+    static List<int[]> fifteenPuzzles() {
+        List<int[]> boards = new ArrayList<>();
+        boards.add(board("1 2 3 4 5 10 6 8 9 7 0 11 13 14 15 12")); //tut
+        boards.add(board("2 3 4 8 1 6 7 12 5 10 11 15 9 13 14 0")); //12 moves
+        boards.add(board("4 8 12 15 3 6 7 14 2 10 11 13 1 5 9 0")); //36 moves
+        boards.add(board("1 0 2 4 5 7 3 8 9 6 10 12 13 14 11 15")); //project 15 puzzle
+        boards.addAll(randomWalks(16, 8, 60));
+
+        return boards;
+    }
+
+    private static int[] board(String tiles) {
+        return Utils.stringToIntArr(tiles.split(" "));
+    }
+
+    private static List<int[]> randomWalks(int cells, int count, int steps) {
+        Random random = new Random(SEED + cells);
+        MoveTable moves = MoveTable.forCells(cells);
+        List<int[]> boards = new ArrayList<>();
+
+        for (int n = 0; n < count; n++) {
+            int[] board = goal(cells);
+            int blank = cells - 1;
+
+            for (int s = 0; s < steps; s++) {
+                int target = moves.target(blank, random.nextInt(moves.count(blank)));
+                Utils.swap(board, blank, target);
+                blank = target;
+            }
+            boards.add(board);
+        }
+
+        return boards;
+    }
+}
@@ -0,0 +1,58 @@
+package com.company;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of one heuristic evaluation, through the State API the dialogs use
+ * and through the packed API the searches use
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread) //our State class shares the name
+public class HeuristicBenchmark {
+    @Param({"manhattan", "tiles", "linear", "walking"})
+    public String heuristicName;
+
+    private Heuristic heuristic;
+    private State[] boards;
+    private long[] packed;
+    private State goal;
+    private long packedGoal;
+    private int next;
+
+    @Setup
+    public void setup() {
+        heuristic = BatchSolver.heuristic(heuristicName);
+
+        List<int[]> corpus = Corpus.fifteenPuzzles();
+        boards = new State[corpus.size()];
+        packed = new long[corpus.size()];
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = new State(corpus.get(i), 0);
+            packed[i] = PackedBoard.pack(corpus.get(i));
+        }
+
+        goal = new State(Corpus.goal(16), 0);
+        packedGoal = PackedBoard.pack(goal.getState());
+    }
+
+    @Benchmark
+    public int calculateSum() {
+        next = (next + 1) % boards.length;
+
+        return heuristic.calculateSum(boards[next], goal);
+    }
+
+    @Benchmark
+    public int calculateSumPacked() {
+        next = (next + 1) % packed.length;
+
+        return heuristic.calculateSum(packed[next], packedGoal, 16);
+    }
+}
@@ -0,0 +1,46 @@
+package com.company;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * End to end solves of the whole corpus, one invocation solves every board
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread) //our State class shares the name
+public class SolveBenchmark {
+    @Param({"8", "15"})
+    public int puzzle;
+
+    @Param({"astar", "ida", "bidi"})
+    public String solverName;
+
+    @Param({"manhattan", "linear"})
+    public String heuristicName;
+
+    private Solver solver;
+    private List<int[]> boards;
+    private State goal;
+
+    @Setup
+    public void setup() {
+        solver = BatchSolver.solver(solverName, BatchSolver.heuristic(heuristicName));
+        boards = puzzle == 8 ? Corpus.eightPuzzles() : Corpus.fifteenPuzzles();
+        goal = new State(Corpus.goal(puzzle + 1), 0);
+    }
+
+    @Benchmark
+    public int solveCorpus() {
+        int moves = 0;
+
+        for (int[] board : boards) moves += solver.solve(new State(board, 0), goal).size() - 1;
+
+        return moves;
+    }
+}
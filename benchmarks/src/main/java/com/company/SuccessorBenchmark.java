@@ -0,0 +1,71 @@
+package com.company;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Successor generation and the hashing/equality every closed list probe pays
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread) //our State class shares the name
+public class SuccessorBenchmark {
+    private State[] boards;
+    private State[] copies;
+    private long[] packed;
+    private MoveTable moves;
+    private final long[] children = new long[4];
+    private final int[] childBlanks = new int[4];
+    private int next;
+
+    @Setup
+    public void setup() {
+        List<int[]> corpus = Corpus.fifteenPuzzles();
+        boards = new State[corpus.size()];
+        copies = new State[corpus.size()];
+        packed = new long[corpus.size()];
+
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = new State(corpus.get(i), 0);
+            copies[i] = new State(corpus.get(i).clone(), 0);
+            packed[i] = PackedBoard.pack(corpus.get(i));
+        }
+        moves = MoveTable.forCells(16);
+    }
+
+    @Benchmark
+    public List<State> getNextStates() {
+        next = (next + 1) % boards.length;
+
+        return Utils.getNextStates(boards[next], 1);
+    }
+
+    @Benchmark
+    public long moveTableExpand() {
+        next = (next + 1) % packed.length;
+        long board = packed[next];
+
+        int n = moves.expand(board, PackedBoard.blankIndex(board, 16), children, childBlanks);
+
+        return children[n - 1];
+    }
+
+    @Benchmark
+    public int stateHashCode() {
+        next = (next + 1) % boards.length;
+
+        return boards[next].hashCode();
+    }
+
+    @Benchmark
+    public boolean stateEquals() {
+        next = (next + 1) % boards.length;
+
+        return boards[next].equals(copies[next]);
+    }
+}